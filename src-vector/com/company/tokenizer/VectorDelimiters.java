@@ -0,0 +1,91 @@
+package com.company.tokenizer;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Vector API implementation of {@link Delimiters}, only loaded when jdk.incubator.vector is present.
+ * It lives in the optional source root src-vector, which is compiled on top of src:
+ * <pre>
+ * javac -encoding UTF-8 -d out $(find src -name '*.java')
+ * javac -encoding UTF-8 --add-modules jdk.incubator.vector -cp out -d out $(find src-vector -name '*.java')
+ * </pre>
+ * Without the second step the scanner uses the scalar loops.
+ *
+ * Each step compares a full vector (16-64 bytes, depending on the CPU) against the delimiter;
+ * newlines are counted with the population count of the comparison mask. The tail that does not fill
+ * a vector falls back to scalar code.
+ */
+final class VectorDelimiters implements Delimiters.Search {
+    private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    VectorDelimiters() {
+    }
+
+    @Override
+    public int indexOf(char[] chars, int from, int to, char c) {
+        int i = from;
+        int bound = from + CHARS.loopBound(to - from);
+        for (; i < bound; i += CHARS.length()) {
+            VectorMask<Short> found = ShortVector.fromCharArray(CHARS, chars, i).eq((short) c);
+            if (found.anyTrue()) {
+                return i + found.firstTrue();
+            }
+        }
+        for (; i < to; i++) {
+            if (chars[i] == c) return i;
+        }
+        return to;
+    }
+
+    @Override
+    public int countNewlines(char[] chars, int from, int to) {
+        int count = 0;
+        int i = from;
+        int bound = from + CHARS.loopBound(to - from);
+        for (; i < bound; i += CHARS.length()) {
+            count += ShortVector.fromCharArray(CHARS, chars, i).eq((short) '\n').trueCount();
+        }
+        for (; i < to; i++) {
+            if (chars[i] == '\n') count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int indexOf(ByteBuffer bytes, int from, int to, byte c) {
+        int i = from;
+        int bound = from + BYTES.loopBound(to - from);
+        for (; i < bound; i += BYTES.length()) {
+            VectorMask<Byte> found = ByteVector.fromByteBuffer(BYTES, bytes, i, ORDER).eq(c);
+            if (found.anyTrue()) {
+                return i + found.firstTrue();
+            }
+        }
+        for (; i < to; i++) {
+            if (bytes.get(i) == c) return i;
+        }
+        return to;
+    }
+
+    @Override
+    public int countNewlines(ByteBuffer bytes, int from, int to) {
+        int count = 0;
+        int i = from;
+        int bound = from + BYTES.loopBound(to - from);
+        for (; i < bound; i += BYTES.length()) {
+            count += ByteVector.fromByteBuffer(BYTES, bytes, i, ORDER).eq((byte) '\n').trueCount();
+        }
+        for (; i < to; i++) {
+            if (bytes.get(i) == '\n') count++;
+        }
+        return count;
+    }
+}
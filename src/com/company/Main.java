@@ -1,6 +1,20 @@
 package com.company;
 
+import com.company.cache.AstCache;
+import com.company.check.BatchChecker;
+import com.company.check.FileReport;
+import com.company.closure.ClosureInterpreter;
+import com.company.interpreter.Backend;
 import com.company.interpreter.Interpreter;
+import com.company.interpreter.RuntimeError;
+import com.company.jvm.JvmInterpreter;
+import com.company.nodes.NodeInterpreter;
+import com.company.output.BufferedSink;
+import com.company.output.OutputSink;
+import com.company.vm.VM;
+import com.company.optimizer.ConstantFolder;
+import com.company.optimizer.NodeCounter;
+import com.company.parser.Diagnostic;
 import com.company.parser.Parser;
 import com.company.syntax.AstPrinter;
 import com.company.syntax.Statement;
@@ -9,12 +23,66 @@ import com.company.tokenizer.Token;
 import com.company.tokenizer.TokenType;
 
 import com.company.syntax.Expression;
+import com.company.tokenizer.MappedScanner;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 public class Main {
+    // print output older than this is written out by the next print
+    private static final long FLUSH_MILLIS = 100;
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        boolean stream = false;
+        boolean check = false;
+        String cache = null;
+        boolean stats = false;
+        String backend = null;
+        String script = null;
+        for (String arg : args) {
+            if (arg.equals("--stream")) {
+                stream = true;
+            } else if (arg.startsWith("--cache=")) {
+                cache = arg.substring("--cache=".length());
+            } else if (arg.equals("--stats")) {
+                stats = true;
+            } else if (arg.startsWith("--backend=")) {
+                backend = arg.substring("--backend=".length());
+                if (!backend.equals("ast") && !backend.equals("nodes") && !backend.equals("vm") && !backend.equals("closures") && !backend.equals("jvm")) {
+                    usage();
+                }
+            } else if (arg.equals("--check")) {
+                check = true;
+            } else if (script == null && !arg.startsWith("--")) {
+                script = arg;
+            } else {
+                usage();
+            }
+        }
+        if (check) {
+            if (script == null || stream || cache != null || stats || backend != null) {
+                usage();
+            }
+            runCheck(script);
+            return;
+        }
+        if (script != null) {
+            if (stream && (cache != null || stats || backend != null)) {
+                usage();
+            }
+            if (stream) {
+                runStream(script);
+            } else {
+                runFile(script, cache == null ? null : new AstCache(Paths.get(cache)), stats, backend == null ? "ast" : backend);
+            }
+            return;
+        } else if (stream || cache != null || stats || backend != null) {
+            usage();
+        }
         // write your code here
         // -123 * (45.67)
 //        Expression expression = new Expression.Binary(
@@ -37,4 +105,151 @@ public class Main {
 //        Parser parser = new Parser();
 //        parser.parser();
     }
+
+    /**
+     * The source file is memory-mapped and scanned as bytes, it is never decoded into one big String.
+     * With a cache the parsed program is stored under the hash of the source, and the next run of the same
+     * source loads it from there without scanning or parsing.
+     *
+     * The program goes through constant folding before it runs, with stats the node counts before and after
+     * are printed to stderr.
+     *
+     * The backend runs the folded program: "ast" walks the syntax tree with Interpreter, "nodes" translates it
+     * into self-specializing nodes (NodeInterpreter), "vm" compiles it to bytecode and runs that on the stack VM,
+     * "closures" compiles every node into a lambda once, "jvm" compiles it to a JVM class that HotSpot can JIT.
+     * Whichever backend runs, print goes through one buffered sink that is flushed at the end.
+     * A runtime error stops the program and is reported on stderr with the line of the failing operator.
+     *
+     * @param path
+     * @param cache null to always parse
+     * @param stats
+     * @param backend
+     * @throws IOException
+     */
+    private static void runFile(String path, AstCache cache, boolean stats, String backend) throws IOException {
+        ByteBuffer source = MappedScanner.map(Paths.get(path));
+        byte[] hash = null;
+        List<Statement> statements = null;
+        if (cache != null) {
+            hash = AstCache.hash(source);
+            statements = cache.load(hash);
+        }
+        if (statements == null) {
+            Parser parser = new Parser(new MappedScanner(source));
+            statements = parser.parser();
+            if (parser.hadError()) {
+                report(parser.getDiagnostics());
+                System.exit(65);
+            }
+            if (cache != null) {
+                try {
+                    cache.store(hash, statements);
+                } catch (IOException e) {
+                    // the script still runs, only the next run has to parse again
+                    System.err.println("Could not write the AST cache: " + e);
+                }
+            }
+        }
+
+        int before = stats ? NodeCounter.count(statements) : 0;
+        statements = new ConstantFolder().fold(statements);
+        if (stats) {
+            System.err.println("constant folding: " + before + " -> " + NodeCounter.count(statements) + " nodes");
+        }
+
+        OutputSink out = stdout();
+        Backend runner;
+        if (backend.equals("nodes")) {
+            runner = new NodeInterpreter(out);
+        } else if (backend.equals("vm")) {
+            runner = new VM(out);
+        } else if (backend.equals("closures")) {
+            runner = new ClosureInterpreter(out);
+        } else if (backend.equals("jvm")) {
+            runner = new JvmInterpreter(out);
+        } else {
+            runner = new Interpreter(out);
+        }
+        runner.interpreter(statements);
+        out.flush();
+        exitOnError(runner.getError());
+    }
+
+    /**
+     * Standard output for print, buffered and written in large blocks instead of one write per line.
+     * It is also flushed on exit, so output before a System.exit is not lost.
+     *
+     * @return
+     */
+    private static OutputSink stdout() {
+        return BufferedSink.stdout(BufferedSink.DEFAULT_BUFFER_SIZE, FLUSH_MILLIS).flushOnExit();
+    }
+
+    /**
+     * Scan, parse and execute as a pipeline: tokens are read lazily through a fixed-size buffer and
+     * every top-level statement runs as soon as it is parsed.
+     * Output starts right away and memory is bounded by the largest single declaration, not by the script.
+     * Statements before a syntax error have already run when it is found, broken declarations are skipped
+     * and all syntax errors are reported at the end.
+     * Output is buffered but flushed at least every FLUSH_MILLIS, so it still shows up while a long
+     * script is running.
+     *
+     * @param path
+     * @throws IOException
+     */
+    private static void runStream(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            Parser parser = new Parser(new Scanner(channel));
+            OutputSink out = stdout();
+            Interpreter interpreter = new Interpreter(out);
+            interpreter.interpreter(parser);
+            out.flush();
+            if (parser.hadError()) {
+                report(parser.getDiagnostics());
+                System.exit(65);
+            }
+            exitOnError(interpreter.getError());
+        }
+    }
+
+    /**
+     * @param error the runtime error that stopped the program, null if it ran to the end
+     */
+    private static void exitOnError(RuntimeError error) {
+        if (error != null) {
+            System.err.println(error);
+            System.exit(70);
+        }
+    }
+
+    /**
+     * Scans and parses every .lox file under path in parallel without running anything,
+     * prints all syntax errors and a summary with the timings
+     *
+     * @param path a directory or a single script
+     * @throws IOException
+     */
+    private static void runCheck(String path) throws IOException {
+        BatchChecker checker = new BatchChecker();
+        long start = System.nanoTime();
+        List<FileReport> reports = checker.check(Paths.get(path));
+        long elapsed = System.nanoTime() - start;
+        checker.printReport(reports, elapsed, System.out);
+        for (FileReport report : reports) {
+            if (report.hasErrors()) {
+                System.exit(65);
+            }
+        }
+    }
+
+    private static void report(List<Diagnostic> diagnostics) {
+        for (Diagnostic diagnostic : diagnostics) {
+            System.err.println(diagnostic);
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: lox [--stream | [--cache=<directory>] [--stats] [--backend=ast|nodes|vm|closures|jvm]] [script] | lox --check <directory>");
+        System.exit(64);
+    }
 }
@@ -0,0 +1,315 @@
+package com.company.benchmark;
+
+import com.company.parser.Parser;
+import com.company.syntax.AstArena;
+import com.company.syntax.Expression;
+import com.company.syntax.Statement;
+import com.company.tokenizer.Scanner;
+
+import java.util.List;
+
+/**
+ * Compares the linked AST with the {@link AstArena} built from it: retained heap of both, and the time of a full
+ * walk of each through its visitors. Both walks write the same s-expression dump (operators, names and literals,
+ * with the line of every node that has a token), the benchmark fails if the dumps differ.
+ *
+ * Usage: AstArenaBenchmark [statements] [iterations]
+ */
+public class AstArenaBenchmark {
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String source = generate(statements);
+
+        long base = usedHeap();
+        List<Statement> program = new Parser(new Scanner(source)).parser();
+        long treeBytes = usedHeap() - base;
+        AstArena arena = AstArena.of(program);
+
+        String treeDump = new TreeDump().dump(program);
+        String arenaDump = new ArenaDump(arena).dump();
+        if (!treeDump.equals(arenaDump)) {
+            throw new IllegalStateException("the arena does not match the tree it was built from");
+        }
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            int treeLength = new TreeDump().dump(program).length();
+            long tree = System.nanoTime() - start;
+            start = System.nanoTime();
+            int arenaLength = new ArenaDump(arena).dump().length();
+            long flat = System.nanoTime() - start;
+            System.out.printf("iteration %2d: tree %.2f ms, arena %.2f ms (%d chars)%n",
+                    i, tree / 1e6, flat / 1e6, Math.min(treeLength, arenaLength));
+        }
+
+        program = null;
+        treeDump = null;
+        arenaDump = null;
+        long arenaBytes = usedHeap() - base;
+        System.out.printf("nodes:        %d%n", arena.size());
+        System.out.printf("linked tree:  %,d bytes (%.1f bytes/node)%n", treeBytes, (double) treeBytes / arena.size());
+        System.out.printf("arena:        %,d bytes (%.1f bytes/node)%n", arenaBytes, (double) arenaBytes / arena.size());
+    }
+
+    static String generate(int statements) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            builder.append("var v").append(i).append(" = (").append(i).append(" + 0.5) * -2;\n");
+            builder.append("{ var w = v").append(i).append("; if (w > 1) print w; else v").append(i).append(" = !nil; }\n");
+            builder.append("print \"line ").append(i).append("\" == nil;\n");
+        }
+        return builder.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class TreeDump implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+        private final StringBuilder builder = new StringBuilder();
+
+        String dump(List<Statement> program) {
+            for (Statement statement : program) {
+                statement.accept(this);
+                builder.append('\n');
+            }
+            return builder.toString();
+        }
+
+        private void open(String name, int line) {
+            builder.append('(').append(name).append(" @").append(line);
+        }
+
+        private void child(Expression expression) {
+            builder.append(' ');
+            expression.accept(this);
+        }
+
+        private void child(Statement statement) {
+            builder.append(' ');
+            statement.accept(this);
+        }
+
+        @Override
+        public Void visitBinaryExpression(Expression.Binary expression) {
+            open(expression.getOperator().lexeme, expression.getOperator().line);
+            child(expression.getLeft());
+            child(expression.getRight());
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpression(Expression.Grouping expression) {
+            builder.append("(group");
+            child(expression.getExpression());
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitLiteralExpression(Expression.Literal expression) {
+            builder.append(expression.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpression(Expression.Unary expression) {
+            open(expression.getOperator().lexeme, expression.getOperator().line);
+            child(expression.getRight());
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitVariableExpression(Expression.Variable expression) {
+            builder.append(expression.getName().lexeme).append(" @").append(expression.getName().line);
+            return null;
+        }
+
+        @Override
+        public Void visitAssignExpression(Expression.Assign expression) {
+            open("= " + expression.getName().lexeme, expression.getName().line);
+            child(expression.getValue());
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStatement(Statement.ExprStatement statement) {
+            builder.append("(;");
+            child(statement.getExpr());
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitPrintStatement(Statement.PrintStatement statement) {
+            builder.append("(print");
+            child(statement.getExpr());
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitVarDeclaration(Statement.VarDeclaration declaration) {
+            open("var " + declaration.getName().lexeme, declaration.getName().line);
+            if (declaration.getExpression() != null) {
+                child(declaration.getExpression());
+            }
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitBlockStatement(Statement.BlockStatement blockStatement) {
+            builder.append("(block");
+            for (Statement statement : blockStatement.getStatements()) {
+                child(statement);
+            }
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitIfStatement(Statement.IfStatement ifStatement) {
+            builder.append("(if");
+            child(ifStatement.getCondition());
+            child(ifStatement.getThenBranch());
+            if (ifStatement.getElseBranch() != null) {
+                child(ifStatement.getElseBranch());
+            }
+            builder.append(')');
+            return null;
+        }
+    }
+
+    private static class ArenaDump implements AstArena.ExpressionVisitor<Void>, AstArena.StatementVisitor<Void> {
+        private final AstArena arena;
+        private final StringBuilder builder = new StringBuilder();
+
+        ArenaDump(AstArena arena) {
+            this.arena = arena;
+        }
+
+        String dump() {
+            for (int i = 0; i < arena.getStatementCount(); i++) {
+                arena.accept(arena.getStatement(i), (AstArena.StatementVisitor<Void>) this);
+                builder.append('\n');
+            }
+            return builder.toString();
+        }
+
+        private void open(String name, int node) {
+            builder.append('(').append(name).append(" @").append(arena.getLine(node));
+        }
+
+        private void expression(int expression) {
+            builder.append(' ');
+            arena.accept(expression, (AstArena.ExpressionVisitor<Void>) this);
+        }
+
+        private void statement(int statement) {
+            builder.append(' ');
+            arena.accept(statement, (AstArena.StatementVisitor<Void>) this);
+        }
+
+        @Override
+        public Void visitBinaryExpression(int expression) {
+            open(arena.getOperator(expression).lexeme(), expression);
+            expression(arena.getLeft(expression));
+            expression(arena.getRight(expression));
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpression(int expression) {
+            builder.append("(group");
+            expression(arena.getExpression(expression));
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitLiteralExpression(int expression) {
+            builder.append(arena.getLiteral(expression));
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpression(int expression) {
+            open(arena.getOperator(expression).lexeme(), expression);
+            expression(arena.getRight(expression));
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitVariableExpression(int expression) {
+            builder.append(arena.getName(expression)).append(" @").append(arena.getLine(expression));
+            return null;
+        }
+
+        @Override
+        public Void visitAssignExpression(int expression) {
+            open("= " + arena.getName(expression), expression);
+            expression(arena.getValue(expression));
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStatement(int statement) {
+            builder.append("(;");
+            expression(arena.getExpression(statement));
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitPrintStatement(int statement) {
+            builder.append("(print");
+            expression(arena.getExpression(statement));
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitVarDeclaration(int declaration) {
+            open("var " + arena.getName(declaration), declaration);
+            if (arena.getInitializer(declaration) != AstArena.NONE) {
+                expression(arena.getInitializer(declaration));
+            }
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitBlockStatement(int blockStatement) {
+            builder.append("(block");
+            for (int i = 0; i < arena.getStatementCount(blockStatement); i++) {
+                statement(arena.getStatement(blockStatement, i));
+            }
+            builder.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitIfStatement(int ifStatement) {
+            builder.append("(if");
+            expression(arena.getCondition(ifStatement));
+            statement(arena.getThenBranch(ifStatement));
+            if (arena.getElseBranch(ifStatement) != AstArena.NONE) {
+                statement(arena.getElseBranch(ifStatement));
+            }
+            builder.append(')');
+            return null;
+        }
+    }
+}
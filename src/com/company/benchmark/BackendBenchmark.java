@@ -0,0 +1,105 @@
+package com.company.benchmark;
+
+import com.company.closure.ClosureInterpreter;
+import com.company.closure.ClosureProgram;
+import com.company.interpreter.Interpreter;
+import com.company.interpreter.Resolver;
+import com.company.jvm.CompiledProgram;
+import com.company.jvm.JvmInterpreter;
+import com.company.nodes.NodeInterpreter;
+import com.company.nodes.StatementNode;
+import com.company.parser.Parser;
+import com.company.syntax.Statement;
+import com.company.tokenizer.Scanner;
+import com.company.vm.Chunk;
+import com.company.vm.Compiler;
+import com.company.vm.VM;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the same programs on every backend and reports how long preparing takes, the time and the allocated bytes per run.
+ * Every backend prepares a program once (the nodes are built, the bytecode, the closures or the JVM class
+ * are compiled) and then runs it again and again, Interpreter resolves it again on every run.
+ *
+ * The programs:
+ * <ul>
+ *     <li>arithmetic: local and global variables, arithmetic, comparisons, string concatenation and ifs,
+ *     see {@link SpecializationBenchmark#generate(int)}</li>
+ *     <li>nested blocks: variable access through deeply nested blocks, see {@link NestedBlockBenchmark#generate(int)}</li>
+ * </ul>
+ *
+ * A small program with many runs per iteration shows the JIT tiers: HotSpot only compiles code that runs often,
+ * and a Lox program without loops runs every statement once.
+ *
+ * Usage: BackendBenchmark [size] [iterations] [runs per iteration]
+ */
+public class BackendBenchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        run("arithmetic", SpecializationBenchmark.generate(size), iterations, runs);
+        run("nested blocks", NestedBlockBenchmark.generate(size), iterations, runs);
+    }
+
+    private static void run(String name, String source, int iterations, int runs) {
+        List<Statement> program = new Parser(new Scanner(source)).parser();
+        System.out.println(name + ":");
+
+        Map<String, Runnable> backends = new LinkedHashMap<>();
+        Interpreter interpreter = new Interpreter();
+        backends.put("ast", () -> interpreter.interpreter(program));
+
+        long start = System.nanoTime();
+        NodeInterpreter nodeInterpreter = new NodeInterpreter();
+        List<StatementNode> nodes = nodeInterpreter.build(program);
+        report("nodes", start);
+        backends.put("nodes", () -> nodeInterpreter.execute(nodes));
+
+        start = System.nanoTime();
+        new Resolver().resolve(program);
+        Chunk chunk = new Compiler().compile(program);
+        report("vm", start);
+        VM vm = new VM();
+        backends.put("vm", () -> vm.run(chunk));
+
+        start = System.nanoTime();
+        ClosureInterpreter closureInterpreter = new ClosureInterpreter();
+        ClosureProgram closures = closureInterpreter.compile(program);
+        report("closures", start);
+        backends.put("closures", () -> closureInterpreter.execute(closures));
+
+        start = System.nanoTime();
+        JvmInterpreter jvmInterpreter = new JvmInterpreter();
+        CompiledProgram compiled = jvmInterpreter.compile(program);
+        report("jvm", start);
+        backends.put("jvm", () -> jvmInterpreter.execute(compiled));
+
+        for (int i = 0; i < iterations; i++) {
+            StringBuilder line = new StringBuilder(String.format("  iteration %2d:", i));
+            for (Map.Entry<String, Runnable> backend : backends.entrySet()) {
+                long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+                start = System.nanoTime();
+                for (int run = 0; run < runs; run++) {
+                    backend.getValue().run();
+                }
+                double micros = (System.nanoTime() - start) / 1e3 / runs;
+                allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated;
+                line.append(String.format(" %s %.1f us %,d B", backend.getKey(), micros, allocated / runs));
+            }
+            System.out.println(line.append(" per run"));
+        }
+    }
+
+    private static void report(String backend, long start) {
+        System.out.printf("  %s prepared in %.2f ms%n", backend, (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,247 @@
+package com.company.benchmark;
+
+import com.company.closure.ClosureInterpreter;
+import com.company.closure.ClosureProgram;
+import com.company.interpreter.Backend;
+import com.company.interpreter.Interpreter;
+import com.company.interpreter.Resolver;
+import com.company.jvm.CompiledProgram;
+import com.company.jvm.JvmInterpreter;
+import com.company.nodes.NodeInterpreter;
+import com.company.nodes.StatementNode;
+import com.company.optimizer.ConstantFolder;
+import com.company.output.MemorySink;
+import com.company.output.OutputSink;
+import com.company.parser.Parser;
+import com.company.syntax.Statement;
+import com.company.tokenizer.Scanner;
+import com.company.vm.Chunk;
+import com.company.vm.Compiler;
+import com.company.vm.VM;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Checks that every backend behaves like the nodes tier: runs random programs on each of them and compares what
+ * they print and the runtime error they stop with, if any. The nodes tier is the reference because it keeps every
+ * value boxed and computes through Values, it shares nothing with the NaN-boxed numbers of the Interpreter (ast)
+ * and the closure tier.
+ *
+ * The programs use three variables (global, shadowed in nested blocks, undefined or uninitialized), every operator
+ * on numbers, strings, booleans and nil (so a good part of them fail on an operand of the wrong type), assignments
+ * inside expressions and if/else. Some expressions span lines, so the line of a runtime error is checked too.
+ * Every program runs twice on the same backend instance, so the second run sees the globals of the first. Each
+ * backend runs it once through interpreter() and once prepared a single time (built or compiled) and executed
+ * twice, which reuses nodes that specialized in the first run. The reference runs the program as parsed, the
+ * backends run it both as parsed and constant folded.
+ *
+ * Mismatches are printed with the program, the exit status is 1 if there are any.
+ *
+ * Usage: DifferentialRunner [programs] [seed]
+ */
+public class DifferentialRunner {
+    private static final String[] NAMES = {"a", "b", "c"};
+    private static final String[] OPERATORS = {" + ", " - ", " * ", " / ", " < ", " <= ", " > ", " >= ", " == ", " != "};
+    private static final int SHOWN = 5;
+
+    private final Random random;
+
+    public DifferentialRunner(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) {
+        int programs = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        Map<String, Function<List<Statement>, String>> backends = backends();
+        DifferentialRunner generator = new DifferentialRunner(seed);
+        int mismatches = 0;
+        for (int i = 0; i < programs; i++) {
+            String source = generator.program();
+            String expected = interpreted(NodeInterpreter::new).apply(parse(source));
+            for (boolean fold : new boolean[]{false, true}) {
+                for (Map.Entry<String, Function<List<Statement>, String>> backend : backends.entrySet()) {
+                    List<Statement> program = parse(source);
+                    if (fold) {
+                        program = new ConstantFolder().fold(program);
+                    }
+                    String actual = backend.getValue().apply(program);
+                    if (actual.equals(expected)) {
+                        continue;
+                    }
+                    if (++mismatches <= SHOWN) {
+                        System.out.println("---- " + backend.getKey() + (fold ? ", folded" : "") + ":");
+                        System.out.print(source);
+                        System.out.println("-- expected:");
+                        System.out.print(expected);
+                        System.out.println("-- actual:");
+                        System.out.print(actual);
+                    }
+                }
+            }
+        }
+        System.out.printf("%d programs on %d backends with seed %d: %d mismatches%n",
+                programs, backends.size(), seed, mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return each backend as a function from a freshly parsed program to its transcript
+     */
+    private static Map<String, Function<List<Statement>, String>> backends() {
+        Map<String, Function<List<Statement>, String>> backends = new LinkedHashMap<>();
+        backends.put("ast", interpreted(Interpreter::new));
+        backends.put("nodes", interpreted(NodeInterpreter::new));
+        backends.put("nodes built once", program -> {
+            MemorySink out = new MemorySink();
+            NodeInterpreter backend = new NodeInterpreter(out);
+            List<StatementNode> nodes = backend.build(program);
+            return twice(out, backend, () -> backend.execute(nodes));
+        });
+        backends.put("vm", interpreted(VM::new));
+        backends.put("vm compiled once", program -> {
+            MemorySink out = new MemorySink();
+            VM backend = new VM(out);
+            new Resolver().resolve(program);
+            Chunk chunk = new Compiler().compile(program);
+            return twice(out, backend, () -> backend.run(chunk));
+        });
+        backends.put("closures", interpreted(ClosureInterpreter::new));
+        backends.put("closures compiled once", program -> {
+            MemorySink out = new MemorySink();
+            ClosureInterpreter backend = new ClosureInterpreter(out);
+            ClosureProgram compiled = backend.compile(program);
+            return twice(out, backend, () -> backend.execute(compiled));
+        });
+        backends.put("jvm", interpreted(JvmInterpreter::new));
+        backends.put("jvm compiled once", program -> {
+            MemorySink out = new MemorySink();
+            JvmInterpreter backend = new JvmInterpreter(out);
+            new Resolver().resolve(program);
+            CompiledProgram compiled = backend.compile(program);
+            return twice(out, backend, () -> backend.execute(compiled));
+        });
+        return backends;
+    }
+
+    /**
+     * @param backend creates the backend on the sink it prints to
+     * @return a run of the whole program through interpreter()
+     */
+    private static Function<List<Statement>, String> interpreted(Function<OutputSink, Backend> backend) {
+        return program -> {
+            MemorySink out = new MemorySink();
+            Backend instance = backend.apply(out);
+            return twice(out, instance, () -> instance.interpreter(program));
+        };
+    }
+
+    /**
+     * Runs twice and records after each run the runtime error it ended with, message and line
+     *
+     * @param out the sink the backend prints to
+     * @param backend
+     * @param run
+     * @return everything printed
+     */
+    private static String twice(MemorySink out, Backend backend, Runnable run) {
+        for (int i = 0; i < 2; i++) {
+            run.run();
+            out.println(backend.getError() == null ? "[ok]" : backend.getError().toString());
+        }
+        return out.toString();
+    }
+
+    private static List<Statement> parse(String source) {
+        return new Parser(new Scanner(source)).parser();
+    }
+
+    /**
+     * @return 1 to 6 top-level statements, blocks nested up to 3 deep
+     */
+    public String program() {
+        StringBuilder builder = new StringBuilder();
+        int statements = 1 + random.nextInt(6);
+        for (int i = 0; i < statements; i++) {
+            statement(builder, 3);
+        }
+        return builder.toString();
+    }
+
+    private void statement(StringBuilder builder, int depth) {
+        switch (random.nextInt(depth > 0 ? 7 : 5)) {
+            case 0:
+            case 1:
+                builder.append("print ").append(expression(2)).append(";\n");
+                break;
+            case 2:
+                builder.append("var ").append(name());
+                if (random.nextBoolean()) {
+                    builder.append(" = ").append(expression(2));
+                }
+                builder.append(";\n");
+                break;
+            case 3:
+                builder.append(expression(2)).append(";\n");
+                break;
+            case 4:
+                builder.append("if (").append(expression(1)).append(") print ").append(expression(1))
+                        .append("; else ").append(name()).append(" = ").append(expression(1)).append(";\n");
+                break;
+            default:
+                builder.append("{\n");
+                int statements = random.nextInt(5);
+                for (int i = 0; i < statements; i++) {
+                    statement(builder, depth - 1);
+                }
+                builder.append("}\n");
+        }
+    }
+
+    private String expression(int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return primary();
+        }
+        switch (random.nextInt(6)) {
+            case 0:
+                return name() + " = " + expression(depth - 1);
+            case 1:
+                return "(" + expression(depth - 1) + ")";
+            case 2:
+                return "-" + expression(depth - 1);
+            case 3:
+                return "!" + expression(depth - 1);
+            case 4:
+                return expression(depth - 1) + " + " + expression(depth - 1);
+            default:
+                // sometimes the right operand starts a new line, the line of an error is the one of its operator
+                return expression(depth - 1) + OPERATORS[random.nextInt(OPERATORS.length)]
+                        + (random.nextInt(4) == 0 ? "\n" : "") + expression(depth - 1);
+        }
+    }
+
+    private String primary() {
+        int kind = random.nextInt(7);
+        if (kind < 3) {
+            return name();
+        }
+        if (kind < 5) {
+            return random.nextInt(5) + (random.nextInt(4) == 0 ? ".5" : "");
+        }
+        if (kind == 5) {
+            return "\"s\"";
+        }
+        return random.nextBoolean() ? "true" : "nil";
+    }
+
+    private String name() {
+        return NAMES[random.nextInt(NAMES.length)];
+    }
+}
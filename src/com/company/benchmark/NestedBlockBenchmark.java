@@ -0,0 +1,49 @@
+package com.company.benchmark;
+
+import com.company.interpreter.Interpreter;
+import com.company.parser.Parser;
+import com.company.syntax.Statement;
+import com.company.tokenizer.Scanner;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Executes deeply nested blocks, like the demo program in Main, and reports time and allocated bytes per block.
+ * Three of every eight blocks declare a variable, the others only contain other blocks and assignments.
+ * Lox has no loops, so the same parsed program is run again in every iteration.
+ *
+ * Usage: NestedBlockBenchmark [statements] [iterations]
+ */
+public class NestedBlockBenchmark {
+    private static final int BLOCKS_PER_STATEMENT = 8;
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<Statement> program = new Parser(new Scanner(generate(statements))).parser();
+        long blocks = (long) statements * BLOCKS_PER_STATEMENT;
+        Interpreter interpreter = new Interpreter();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < iterations; i++) {
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            interpreter.interpreter(program);
+            long elapsed = System.nanoTime() - start;
+            allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+            System.out.printf("iteration %2d: %.1f ns/block, %.1f bytes/block%n",
+                    i, (double) elapsed / blocks, (double) allocated / blocks);
+        }
+    }
+
+    static String generate(int statements) {
+        StringBuilder builder = new StringBuilder("var c = 0;\n");
+        for (int i = 0; i < statements; i++) {
+            builder.append("{ var a = 1; { var b = a; { { c = a + b; { var d = c; { { { a = a + d; } } } } } } } }\n");
+        }
+        return builder.toString();
+    }
+}
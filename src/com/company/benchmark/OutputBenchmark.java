@@ -0,0 +1,63 @@
+package com.company.benchmark;
+
+import com.company.interpreter.Interpreter;
+import com.company.output.BufferedSink;
+import com.company.output.OutputSink;
+import com.company.output.StdoutSink;
+import com.company.parser.Parser;
+import com.company.syntax.Statement;
+import com.company.tokenizer.Scanner;
+
+import java.util.List;
+
+/**
+ * Runs a program that is nothing but print statements with the Interpreter, once printing every line
+ * through System.out and once through a BufferedSink on the same standard output, and reports lines per
+ * second for both on stderr.
+ *
+ * Usage: OutputBenchmark [lines] [iterations] > /dev/null
+ * (or into a file or a pipe, on a terminal the terminal is what gets measured)
+ */
+public class OutputBenchmark {
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<Statement> program = new Parser(new Scanner(generate(lines))).parser();
+        BufferedSink buffered = BufferedSink.stdout(BufferedSink.DEFAULT_BUFFER_SIZE, 0);
+
+        for (int i = 0; i < iterations; i++) {
+            double stdout = run(program, StdoutSink.INSTANCE, lines);
+            double batched = run(program, buffered, lines);
+            System.err.printf("iteration %2d: System.out %,.0f lines/s, buffered %,.0f lines/s%n", i, stdout, batched);
+        }
+    }
+
+    private static double run(List<Statement> program, OutputSink out, int lines) {
+        long start = System.nanoTime();
+        new Interpreter(out).interpreter(program);
+        out.flush();
+        return lines / ((System.nanoTime() - start) / 1e9);
+    }
+
+    static String generate(int lines) {
+        StringBuilder builder = new StringBuilder("var n = 0;\n");
+        for (int i = 0; i < lines; i++) {
+            switch (i % 4) {
+                case 0:
+                    builder.append("n = n + 1; print n;\n");
+                    break;
+                case 1:
+                    builder.append("print \"line \" + \"").append(i).append("\";\n");
+                    break;
+                case 2:
+                    builder.append("print n * 2.5;\n");
+                    break;
+                default:
+                    builder.append("print n < 100;\n");
+            }
+        }
+        return builder.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.company.benchmark;
+
+import com.company.parser.Parser;
+import com.company.tokenizer.Scanner;
+import com.company.tokenizer.Token;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Measures how many bytes the parser allocates per token on an operator heavy program.
+ * The tokens are scanned once up front, so only the parser (the AST it builds plus any garbage) is measured.
+ *
+ * Usage: ParserAllocationBenchmark [statements] [iterations]
+ */
+public class ParserAllocationBenchmark {
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<Token> tokens = new Scanner(generate(statements)).scanTokens();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < iterations; i++) {
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            new Parser(tokens).parser();
+            long elapsed = System.nanoTime() - start;
+            allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+            System.out.printf("iteration %2d: %,d bytes (%.1f bytes/token), %.2f ms%n",
+                    i, allocated, (double) allocated / tokens.size(), elapsed / 1e6);
+        }
+    }
+
+    static String generate(int statements) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            builder.append("var v").append(i).append(" = 1 + 2 * 3 - 4 / 5 == 6 <= 7 != !true;\n");
+            builder.append("v").append(i).append(" = -v").append(i).append(" * 2 + 3 * 4 - 5 >= 6;\n");
+        }
+        return builder.toString();
+    }
+}
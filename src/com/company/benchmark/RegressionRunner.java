@@ -0,0 +1,160 @@
+package com.company.benchmark;
+
+import com.company.closure.ClosureInterpreter;
+import com.company.interpreter.Backend;
+import com.company.interpreter.Interpreter;
+import com.company.jvm.JvmInterpreter;
+import com.company.nodes.NodeInterpreter;
+import com.company.optimizer.ConstantFolder;
+import com.company.output.MemorySink;
+import com.company.output.OutputSink;
+import com.company.parser.Parser;
+import com.company.syntax.Statement;
+import com.company.tokenizer.Scanner;
+import com.company.vm.VM;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs the regression programs on every backend and compares each run with the expectations written into the
+ * program as comments:
+ * <pre>
+ * print 1 + 2; // expect: 3
+ * print -"x"; // expect runtime error: Operand must be a number.
+ * </pre>
+ * Every "expect:" is one printed line, in order. "expect runtime error:" is the error the program stops with,
+ * on the line of the comment. Each program runs as parsed and constant folded, printing into a MemorySink.
+ *
+ * The programs are the .lox files under the directory, plus two that are generated because they are too big
+ * to keep as files: top-level statements that fill several methods of the jvm backend, and a block too large
+ * for a single method, which the jvm backend runs on the VM instead.
+ *
+ * Failures are printed with the expected and the actual output, the exit status is 1 if there are any.
+ *
+ * Usage: RegressionRunner [directory], test by default
+ */
+public class RegressionRunner {
+    private static final String EXPECT = "// expect: ";
+    private static final String EXPECT_ERROR = "// expect runtime error: ";
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "test");
+        Map<String, String> programs = new LinkedHashMap<>();
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            files = paths.filter(path -> path.toString().endsWith(".lox")).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            programs.put(directory.relativize(file).toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        }
+        programs.put("generated: segments", segments(2_000));
+        programs.put("generated: large block", largeBlock(3_000));
+
+        Map<String, Function<OutputSink, Backend>> backends = new LinkedHashMap<>();
+        backends.put("ast", Interpreter::new);
+        backends.put("nodes", NodeInterpreter::new);
+        backends.put("vm", VM::new);
+        backends.put("closures", ClosureInterpreter::new);
+        backends.put("jvm", JvmInterpreter::new);
+
+        int failures = 0;
+        for (Map.Entry<String, String> program : programs.entrySet()) {
+            String expected = expected(program.getValue());
+            for (boolean fold : new boolean[]{false, true}) {
+                for (Map.Entry<String, Function<OutputSink, Backend>> backend : backends.entrySet()) {
+                    String actual = run(program.getValue(), fold, backend.getValue());
+                    if (actual.equals(expected)) {
+                        continue;
+                    }
+                    failures++;
+                    System.out.println("---- " + program.getKey() + " on " + backend.getKey() + (fold ? ", folded" : "") + ":");
+                    System.out.println("-- expected:");
+                    System.out.print(expected);
+                    System.out.println("-- actual:");
+                    System.out.print(actual);
+                }
+            }
+        }
+        System.out.printf("%d programs on %d backends: %d failures%n", programs.size(), backends.size(), failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param source
+     * @return the printed lines and the runtime error the expectations in the source describe
+     */
+    static String expected(String source) {
+        StringBuilder builder = new StringBuilder();
+        String[] lines = source.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            int expect = lines[i].indexOf(EXPECT);
+            if (expect >= 0) {
+                builder.append(lines[i].substring(expect + EXPECT.length())).append('\n');
+            }
+            int error = lines[i].indexOf(EXPECT_ERROR);
+            if (error >= 0) {
+                builder.append("[line ").append(i + 1).append("] Runtime error: ")
+                        .append(lines[i].substring(error + EXPECT_ERROR.length())).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String run(String source, boolean fold, Function<OutputSink, Backend> backend) {
+        List<Statement> program = new Parser(new Scanner(source)).parser();
+        if (fold) {
+            program = new ConstantFolder().fold(program);
+        }
+        MemorySink out = new MemorySink();
+        Backend instance = backend.apply(out);
+        instance.interpreter(program);
+        if (instance.getError() != null) {
+            out.println(instance.getError().toString());
+        }
+        return out.toString();
+    }
+
+    /**
+     * @param statements
+     * @return top-level statements with locals in blocks, far more than one method of 8000 bytes holds,
+     * ending with a runtime error
+     */
+    static String segments(int statements) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            builder.append("var g").append(i).append(" = ").append(i).append(";\n");
+            builder.append("{ var l = g").append(i).append(" * 2; print l + 1; } ")
+                    .append(EXPECT).append(2 * i + 1).append('\n');
+        }
+        builder.append("print g0 - \"last\"; ").append(EXPECT_ERROR).append("Operand must be a number.\n");
+        return builder.toString();
+    }
+
+    /**
+     * @param statements
+     * @return a single block with more bytecode than a JVM method may have, failing close to its end
+     */
+    static String largeBlock(int statements) {
+        StringBuilder builder = new StringBuilder("var before = \"before\";\nprint before; ");
+        builder.append(EXPECT).append("before\n{\n");
+        for (int i = 0; i < statements; i++) {
+            builder.append("  var l").append(i).append(" = ").append(i).append(" + 0.5;\n");
+            builder.append("  print l").append(i).append(" - 0.5; ").append(EXPECT).append(i).append('\n');
+        }
+        builder.append("  print l0 < before; ").append(EXPECT_ERROR).append("Operand must be a number.\n}\n");
+        builder.append("print \"not reached\";\n");
+        return builder.toString();
+    }
+}
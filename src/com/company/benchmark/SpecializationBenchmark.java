@@ -0,0 +1,53 @@
+package com.company.benchmark;
+
+import com.company.interpreter.Interpreter;
+import com.company.nodes.NodeInterpreter;
+import com.company.nodes.StatementNode;
+import com.company.parser.Parser;
+import com.company.syntax.Statement;
+import com.company.tokenizer.Scanner;
+
+import java.util.List;
+
+/**
+ * Runs an arithmetic and string heavy program with the tree-walking Interpreter and with the self-specializing
+ * NodeInterpreter, and reports the time per block for both.
+ * The node program is built once, so from the second iteration on it runs nodes that are already specialized.
+ * Interpreter.interpreter() resolves the program again on every run, the resolver is a small part of the time.
+ *
+ * Usage: SpecializationBenchmark [blocks] [iterations]
+ */
+public class SpecializationBenchmark {
+
+    public static void main(String[] args) {
+        int blocks = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<Statement> program = new Parser(new Scanner(generate(blocks))).parser();
+        Interpreter interpreter = new Interpreter();
+        NodeInterpreter nodeInterpreter = new NodeInterpreter();
+        List<StatementNode> nodes = nodeInterpreter.build(program);
+
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            interpreter.interpreter(program);
+            long ast = System.nanoTime() - start;
+            start = System.nanoTime();
+            nodeInterpreter.execute(nodes);
+            long specialized = System.nanoTime() - start;
+            System.out.printf("iteration %2d: ast %.1f ns/block, nodes %.1f ns/block%n",
+                    i, (double) ast / blocks, (double) specialized / blocks);
+        }
+    }
+
+    static String generate(int blocks) {
+        StringBuilder builder = new StringBuilder("var total = 0;\n");
+        for (int i = 0; i < blocks; i++) {
+            builder.append("{ var x = ").append(i % 7).append("; var y = 2.5; var s = \"a\";\n");
+            builder.append("  x = x + y * 2 - 1; y = x / 2 + y - -x;\n");
+            builder.append("  if (x < y) s = s + \"b\"; else s = s + \"c\";\n");
+            builder.append("  x = x * x - y * y + x / y; if (x >= y) s = s + s; total = total + x; }\n");
+        }
+        return builder.toString();
+    }
+}
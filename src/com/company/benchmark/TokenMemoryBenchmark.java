@@ -0,0 +1,69 @@
+package com.company.benchmark;
+
+import com.company.parser.Parser;
+import com.company.tokenizer.Scanner;
+import com.company.tokenizer.Token;
+import com.company.tokenizer.TokenBuffer;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Compares the retained heap of {@code List<Token>} against {@link TokenBuffer} for the same program,
+ * then the bytes allocated to scan and parse it each way: the list creates every token up front,
+ * the parser reading the buffer by index only creates the tokens the AST keeps.
+ *
+ * Usage: TokenMemoryBenchmark [statements] [iterations]
+ */
+public class TokenMemoryBenchmark {
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String source = generate(statements);
+
+        long base = usedHeap();
+        List<Token> list = new Scanner(source).scanTokens();
+        long listBytes = usedHeap() - base;
+        int count = list.size();
+        list = null;
+
+        base = usedHeap();
+        TokenBuffer buffer = new Scanner(source).scanTokenBuffer();
+        long bufferBytes = usedHeap() - base;
+
+        System.out.printf("tokens:       %d%n", count);
+        System.out.printf("List<Token>:  %,d bytes (%.1f bytes/token)%n", listBytes, (double) listBytes / count);
+        System.out.printf("TokenBuffer:  %,d bytes (%.1f bytes/token)%n", bufferBytes, (double) bufferBytes / buffer.size());
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < iterations; i++) {
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            new Parser(new Scanner(source).scanTokens()).parser();
+            long fromList = threads.getThreadAllocatedBytes(thread) - allocated;
+            allocated = threads.getThreadAllocatedBytes(thread);
+            new Parser(new Scanner(source).scanTokenBuffer()).parser();
+            long fromBuffer = threads.getThreadAllocatedBytes(thread) - allocated;
+            System.out.printf("iteration %d: scan and parse allocate %.1f bytes/token through List<Token>, "
+                    + "%.1f bytes/token through TokenBuffer%n", i, (double) fromList / count, (double) fromBuffer / count);
+        }
+    }
+
+    static String generate(int statements) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            builder.append("var value").append(i).append(" = (").append(i).append(" + 0.5) * 2;\n");
+            builder.append("print \"line ").append(i).append("\";\n");
+        }
+        return builder.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
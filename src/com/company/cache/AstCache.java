@@ -0,0 +1,103 @@
+package com.company.cache;
+
+import com.company.syntax.Statement;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * On-disk cache of parsed programs, so unchanged scripts are neither scanned nor parsed again.
+ *
+ * An entry is named after the SHA-256 of the source bytes and the format version, and the hash is stored in the
+ * entry again. Editing a script or changing the format simply misses, nothing has to be invalidated.
+ * Entries are memory-mapped to be read. They are written to a temporary file first and moved into place,
+ * so concurrent runs never see a half written entry. An entry that can not be read is treated as a miss.
+ *
+ * Only programs without syntax errors should be stored, the diagnostics are not part of the entry.
+ */
+public class AstCache {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path directory;
+
+    public AstCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param source the source bytes from their position to their limit, the position is not changed
+     * @return the cache key of the source
+     */
+    public static byte[] hash(ByteBuffer source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(source.duplicate());
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param hash
+     * @return the cached program, or null if there is no valid entry for it
+     */
+    public List<Statement> load(byte[] hash) {
+        ByteBuffer entry;
+        try (FileChannel channel = FileChannel.open(entry(hash), StandardOpenOption.READ)) {
+            entry = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            // usually there is no entry yet
+            return null;
+        }
+        try {
+            return AstReader.read(entry, hash);
+        } catch (IllegalStateException | BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the entry for a program, replacing an existing one
+     *
+     * @param hash
+     * @param statements
+     * @throws IOException
+     */
+    public void store(byte[] hash, List<Statement> statements) throws IOException {
+        byte[] bytes = AstWriter.write(statements, hash);
+        Files.createDirectories(directory);
+        Path entry = entry(hash);
+        Path temporary = Files.createTempFile(directory, entry.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, bytes);
+            try {
+                Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Path entry(byte[] hash) {
+        StringBuilder name = new StringBuilder(hash.length * 2 + 8);
+        for (byte b : hash) {
+            name.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+        }
+        name.append(".v").append(AstFormat.VERSION).append(".ast");
+        return directory.resolve(name.toString());
+    }
+}
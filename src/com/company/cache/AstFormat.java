@@ -0,0 +1,53 @@
+package com.company.cache;
+
+/**
+ * Layout of a cached syntax tree, all integers are big endian, "varint" is an unsigned LEB128 int:
+ *
+ * <pre>
+ * int      MAGIC
+ * int      VERSION
+ * byte[32] SHA-256 of the source, the cache key
+ * varint   string count, then per string: varint byte length, UTF-8 bytes
+ * varint   constant count, then per constant: byte tag, payload (8 byte double or varint string index)
+ * varint   statement count, then the statements in preorder
+ * </pre>
+ *
+ * A node is its kind byte followed by its operands and children. Names are string pool indices, literals are
+ * constant pool indices, operators are TokenType ordinals. Every token keeps its line as the zigzag varint of the
+ * difference to the line of the token before it.
+ * Absent children (no initializer, no else branch) are written as NONE.
+ *
+ * Bump VERSION whenever the layout, a node or the TokenType enum changes, old entries are simply not found anymore.
+ */
+final class AstFormat {
+    static final int MAGIC = 0x4C4F5841; // "LOXA"
+    static final int VERSION = 1;
+    static final int HASH_LENGTH = 32;
+
+    static final byte NONE = 0;
+
+    // expressions
+    static final byte ASSIGN = 1;
+    static final byte BINARY = 2;
+    static final byte GROUPING = 3;
+    static final byte LITERAL = 4;
+    static final byte UNARY = 5;
+    static final byte VARIABLE = 6;
+
+    // statements
+    static final byte EXPRESSION_STATEMENT = 16;
+    static final byte PRINT_STATEMENT = 17;
+    static final byte VAR_DECLARATION = 18;
+    static final byte BLOCK_STATEMENT = 19;
+    static final byte IF_STATEMENT = 20;
+
+    // constant pool tags
+    static final byte CONSTANT_NIL = 0;
+    static final byte CONSTANT_TRUE = 1;
+    static final byte CONSTANT_FALSE = 2;
+    static final byte CONSTANT_NUMBER = 3;
+    static final byte CONSTANT_STRING = 4;
+
+    private AstFormat() {
+    }
+}
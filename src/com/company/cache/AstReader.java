@@ -0,0 +1,219 @@
+package com.company.cache;
+
+import com.company.syntax.Expression;
+import com.company.syntax.Statement;
+import com.company.tokenizer.Token;
+import com.company.tokenizer.TokenType;
+import com.company.utils.Numbers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rebuilds a program from the {@link AstFormat} layout.
+ *
+ * Every name is decoded once from the string pool, so all tokens of the same variable share one String
+ * like they do after scanning. Malformed input throws {@link IllegalStateException} or a
+ * {@link java.nio.BufferUnderflowException}, it never produces a partial tree.
+ */
+class AstReader {
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private final ByteBuffer in;
+    private String[] strings;
+    private Object[] constants;
+    private int line = 1;
+
+    private AstReader(ByteBuffer in) {
+        this.in = in;
+    }
+
+    /**
+     * @param in the cache entry, read from its position
+     * @param hash the expected source hash
+     * @return the program, or null if the entry was written by another format version or for another source
+     */
+    static List<Statement> read(ByteBuffer in, byte[] hash) {
+        AstReader reader = new AstReader(in);
+        if (in.remaining() < 8 + AstFormat.HASH_LENGTH
+                || in.getInt() != AstFormat.MAGIC || in.getInt() != AstFormat.VERSION) {
+            return null;
+        }
+        byte[] stored = new byte[AstFormat.HASH_LENGTH];
+        in.get(stored);
+        if (!Arrays.equals(stored, hash)) {
+            return null;
+        }
+        reader.readStrings();
+        reader.readConstants();
+
+        int count = reader.readCount();
+        List<Statement> statements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            statements.add(reader.statement());
+        }
+        if (in.hasRemaining()) {
+            throw new IllegalStateException("Trailing bytes after the last statement");
+        }
+        return statements;
+    }
+
+    private void readStrings() {
+        strings = new String[readCount()];
+        for (int i = 0; i < strings.length; i++) {
+            int length = readCount();
+            if (in.hasArray()) {
+                strings[i] = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+                in.position(in.position() + length);
+            } else {
+                byte[] bytes = new byte[length];
+                in.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    private void readConstants() {
+        constants = new Object[readCount()];
+        for (int i = 0; i < constants.length; i++) {
+            byte tag = in.get();
+            switch (tag) {
+                case AstFormat.CONSTANT_NIL:
+                    constants[i] = null;
+                    break;
+                case AstFormat.CONSTANT_TRUE:
+                    constants[i] = true;
+                    break;
+                case AstFormat.CONSTANT_FALSE:
+                    constants[i] = false;
+                    break;
+                case AstFormat.CONSTANT_NUMBER:
+                    constants[i] = Numbers.box(Double.longBitsToDouble(in.getLong()));
+                    break;
+                case AstFormat.CONSTANT_STRING:
+                    constants[i] = string();
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown constant tag " + tag);
+            }
+        }
+    }
+
+    private Statement statement() {
+        byte kind = in.get();
+        switch (kind) {
+            case AstFormat.NONE:
+                return null;
+            case AstFormat.EXPRESSION_STATEMENT:
+                return new Statement.ExprStatement(expression());
+            case AstFormat.PRINT_STATEMENT:
+                return new Statement.PrintStatement(expression());
+            case AstFormat.VAR_DECLARATION: {
+                Token name = name();
+                return new Statement.VarDeclaration(name, expression());
+            }
+            case AstFormat.BLOCK_STATEMENT: {
+                int count = readCount();
+                List<Statement> statements = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    statements.add(statement());
+                }
+                return new Statement.BlockStatement(statements);
+            }
+            case AstFormat.IF_STATEMENT: {
+                Expression condition = expression();
+                Statement thenBranch = statement();
+                Statement elseBranch = statement();
+                return new Statement.IfStatement(condition, thenBranch, elseBranch);
+            }
+            default:
+                throw new IllegalStateException("Unknown statement kind " + kind);
+        }
+    }
+
+    private Expression expression() {
+        byte kind = in.get();
+        switch (kind) {
+            case AstFormat.NONE:
+                return null;
+            case AstFormat.ASSIGN: {
+                Token name = name();
+                return new Expression.Assign(name, expression());
+            }
+            case AstFormat.BINARY: {
+                Token operator = operator();
+                Expression left = expression();
+                Expression right = expression();
+                return new Expression.Binary(left, operator, right);
+            }
+            case AstFormat.GROUPING:
+                return new Expression.Grouping(expression());
+            case AstFormat.LITERAL:
+                return new Expression.Literal(constants[index(constants.length)]);
+            case AstFormat.UNARY: {
+                Token operator = operator();
+                return new Expression.Unary(operator, expression());
+            }
+            case AstFormat.VARIABLE:
+                return new Expression.Variable(name());
+            default:
+                throw new IllegalStateException("Unknown expression kind " + kind);
+        }
+    }
+
+    private Token name() {
+        String name = string();
+        return new Token(TokenType.IDENTIFIER, name, null, readLine());
+    }
+
+    private Token operator() {
+        int ordinal = in.get() & 0xFF;
+        if (ordinal >= TOKEN_TYPES.length) {
+            throw new IllegalStateException("Unknown operator " + ordinal);
+        }
+        TokenType type = TOKEN_TYPES[ordinal];
+        return new Token(type, type.lexeme(), null, readLine());
+    }
+
+    private int readLine() {
+        int zigzag = readVarint();
+        line += (zigzag >>> 1) ^ -(zigzag & 1);
+        return line;
+    }
+
+    private String string() {
+        return strings[index(strings.length)];
+    }
+
+    private int index(int bound) {
+        int index = readVarint();
+        if (index < 0 || index >= bound) {
+            throw new IllegalStateException("Pool index " + index + " out of " + bound);
+        }
+        return index;
+    }
+
+    // counts are bounded by the bytes left, so a corrupt count can not make us allocate a huge array
+    private int readCount() {
+        int count = readVarint();
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalStateException("Count " + count + " exceeds the remaining " + in.remaining() + " bytes");
+        }
+        return count;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+}
@@ -0,0 +1,263 @@
+package com.company.cache;
+
+import com.company.syntax.Expression;
+import com.company.syntax.Statement;
+import com.company.tokenizer.Token;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes a parsed program in the {@link AstFormat} layout.
+ *
+ * The tree is written into its own buffer first, names and literal values are collected into the pools on the way,
+ * so that the pools can be put in front of the tree and are known to the reader before the first node.
+ */
+class AstWriter implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+    private final Output tree = new Output();
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIndices = new HashMap<>();
+    private final List<Object> constants = new ArrayList<>();
+    // null (nil) is a valid key of a HashMap
+    private final Map<Object, Integer> constantIndices = new HashMap<>();
+    // line of the token written last, lines are written as the difference to it
+    private int line = 1;
+
+    static byte[] write(List<Statement> statements, byte[] hash) {
+        AstWriter writer = new AstWriter();
+        writer.tree.writeVarint(statements.size());
+        for (Statement statement : statements) {
+            statement.accept(writer);
+        }
+
+        Output out = new Output();
+        out.writeInt(AstFormat.MAGIC);
+        out.writeInt(AstFormat.VERSION);
+        out.write(hash, 0, hash.length);
+
+        out.writeVarint(writer.strings.size());
+        for (String string : writer.strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeVarint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        out.writeVarint(writer.constants.size());
+        for (Object constant : writer.constants) {
+            if (constant == null) {
+                out.writeByte(AstFormat.CONSTANT_NIL);
+            } else if (constant instanceof Boolean) {
+                out.writeByte((Boolean) constant ? AstFormat.CONSTANT_TRUE : AstFormat.CONSTANT_FALSE);
+            } else if (constant instanceof Double) {
+                out.writeByte(AstFormat.CONSTANT_NUMBER);
+                out.writeLong(Double.doubleToRawLongBits((Double) constant));
+            } else {
+                out.writeByte(AstFormat.CONSTANT_STRING);
+                out.writeVarint(writer.string((String) constant));
+            }
+        }
+
+        out.write(writer.tree.bytes, 0, writer.tree.size);
+        return Arrays.copyOf(out.bytes, out.size);
+    }
+
+    private int string(String string) {
+        Integer index = stringIndices.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.add(string);
+            stringIndices.put(string, index);
+        }
+        return index;
+    }
+
+    private int constant(Object value) {
+        if (value != null && !(value instanceof Boolean) && !(value instanceof Double) && !(value instanceof String)) {
+            throw new IllegalArgumentException("Literal can not be cached: " + value);
+        }
+        Integer index = constantIndices.get(value);
+        if (index == null) {
+            if (value instanceof String) {
+                // the string pool is written before the constants, so the text has to be in it already
+                string((String) value);
+            }
+            index = constants.size();
+            constants.add(value);
+            constantIndices.put(value, index);
+        }
+        return index;
+    }
+
+    private void name(Token name) {
+        tree.writeVarint(string(name.lexeme));
+        line(name.line);
+    }
+
+    private void operator(Token operator) {
+        tree.writeByte(operator.type.ordinal());
+        line(operator.line);
+    }
+
+    // nearby tokens are mostly on the same line, the zigzag encoded difference is a single 0 byte then
+    private void line(int tokenLine) {
+        int delta = tokenLine - line;
+        tree.writeVarint((delta << 1) ^ (delta >> 31));
+        line = tokenLine;
+    }
+
+    private void expression(Expression expression) {
+        if (expression == null) {
+            tree.writeByte(AstFormat.NONE);
+        } else {
+            expression.accept(this);
+        }
+    }
+
+    private void statement(Statement statement) {
+        if (statement == null) {
+            tree.writeByte(AstFormat.NONE);
+        } else {
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public Void visitAssignExpression(Expression.Assign expression) {
+        tree.writeByte(AstFormat.ASSIGN);
+        name(expression.getName());
+        expression(expression.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpression(Expression.Binary expression) {
+        tree.writeByte(AstFormat.BINARY);
+        operator(expression.getOperator());
+        expression(expression.getLeft());
+        expression(expression.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpression(Expression.Grouping expression) {
+        tree.writeByte(AstFormat.GROUPING);
+        expression(expression.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpression(Expression.Literal expression) {
+        tree.writeByte(AstFormat.LITERAL);
+        tree.writeVarint(constant(expression.getValue()));
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpression(Expression.Unary expression) {
+        tree.writeByte(AstFormat.UNARY);
+        operator(expression.getOperator());
+        expression(expression.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpression(Expression.Variable expression) {
+        tree.writeByte(AstFormat.VARIABLE);
+        name(expression.getName());
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(Statement.ExprStatement statement) {
+        tree.writeByte(AstFormat.EXPRESSION_STATEMENT);
+        expression(statement.getExpr());
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStatement(Statement.PrintStatement statement) {
+        tree.writeByte(AstFormat.PRINT_STATEMENT);
+        expression(statement.getExpr());
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(Statement.VarDeclaration declaration) {
+        tree.writeByte(AstFormat.VAR_DECLARATION);
+        name(declaration.getName());
+        expression(declaration.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStatement(Statement.BlockStatement blockStatement) {
+        tree.writeByte(AstFormat.BLOCK_STATEMENT);
+        List<Statement> statements = blockStatement.getStatements();
+        tree.writeVarint(statements.size());
+        for (Statement statement : statements) {
+            statement(statement);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIfStatement(Statement.IfStatement ifStatement) {
+        tree.writeByte(AstFormat.IF_STATEMENT);
+        expression(ifStatement.getCondition());
+        statement(ifStatement.getThenBranch());
+        statement(ifStatement.getElseBranch());
+        return null;
+    }
+
+    /**
+     * A growable byte array, unlike DataOutputStream it also writes varints and hands out its buffer
+     */
+    private static class Output {
+        byte[] bytes = new byte[256];
+        int size;
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            bytes[size++] = (byte) (value >>> 24);
+            bytes[size++] = (byte) (value >>> 16);
+            bytes[size++] = (byte) (value >>> 8);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void write(byte[] source, int offset, int length) {
+            ensure(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.company.check;
+
+import com.company.parser.Diagnostic;
+import com.company.parser.Parser;
+import com.company.syntax.Statement;
+import com.company.tokenizer.MappedScanner;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks every .lox file under a directory: scan and parse, collecting the diagnostics and the time per file.
+ *
+ * Files are independent, each one gets its own scanner, symbol table and parser and its report goes into its
+ * own slot of the result array, so workers share nothing and throughput scales with the number of cores.
+ * The file list is split in halves recursively on a ForkJoinPool, idle workers steal the remaining halves,
+ * which keeps the cores busy when a few files are much larger than the rest.
+ */
+public class BatchChecker {
+    // files up to this size are read into the heap, only larger ones are memory-mapped:
+    // mapping costs a few system calls and a mapping per file, and thousands of small mappings
+    // live until the garbage collector gets to them
+    private static final long MAP_THRESHOLD = 1 << 20;
+    // a worker checks at most this many files in a row before splitting
+    private static final int BATCH_SIZE = 8;
+    private static final int SLOWEST = 5;
+
+    private final ForkJoinPool pool;
+
+    public BatchChecker() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BatchChecker(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @param root a directory, searched recursively, or a single file
+     * @return the reports of all .lox files, sorted by path
+     * @throws IOException if the directory can not be walked
+     */
+    public List<FileReport> check(Path root) throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(root)) {
+            files = paths.filter(path -> path.toString().endsWith(".lox") && Files.isRegularFile(path))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        FileReport[] reports = new FileReport[files.size()];
+        pool.invoke(new CheckTask(files, reports, 0, files.size()));
+        List<FileReport> result = new ArrayList<>(reports.length);
+        Collections.addAll(result, reports);
+        return result;
+    }
+
+    /**
+     * Scans and parses a single file. An unreadable file, or one the parser fails on
+     * (a StackOverflowError from nesting too deep), is reported as a failure instead of thrown,
+     * so one bad file does not stop the batch
+     *
+     * @param path
+     * @return
+     */
+    public static FileReport checkFile(Path path) {
+        long start = System.nanoTime();
+        long bytes = 0;
+        try {
+            ByteBuffer source = read(path);
+            bytes = source.remaining();
+            Parser parser = new Parser(new MappedScanner(source));
+            List<Statement> statements = parser.parser();
+            return new FileReport(path, bytes, statements.size(), parser.getDiagnostics(), null,
+                    System.nanoTime() - start);
+        } catch (IOException | RuntimeException | StackOverflowError e) {
+            return new FileReport(path, bytes, 0, Collections.emptyList(), e.toString(), System.nanoTime() - start);
+        }
+    }
+
+    private static ByteBuffer read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Source file too large: " + path);
+            }
+            if (size > MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full or the file ends
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Prints the diagnostics of every broken file followed by a summary
+     *
+     * @param reports
+     * @param wallNanos the elapsed time of the whole batch
+     * @param out
+     */
+    public void printReport(List<FileReport> reports, long wallNanos, PrintStream out) {
+        long bytes = 0;
+        long cpuNanos = 0;
+        int broken = 0;
+        int diagnostics = 0;
+        for (FileReport report : reports) {
+            bytes += report.getBytes();
+            cpuNanos += report.getNanos();
+            if (!report.hasErrors()) {
+                continue;
+            }
+            broken++;
+            if (report.getFailure() != null) {
+                out.println(report.getPath() + ": " + report.getFailure());
+            }
+            for (Diagnostic diagnostic : report.getDiagnostics()) {
+                out.println(report.getPath() + ": " + diagnostic);
+                diagnostics++;
+            }
+        }
+
+        double wallSeconds = Math.max(wallNanos, 1) / 1e9;
+        out.println();
+        out.printf("%d files, %d with errors, %d diagnostics%n", reports.size(), broken, diagnostics);
+        out.printf("%.1f MB in %.3f s with %d workers: %.0f files/s, %.1f MB/s (%.3f s spent in files, %.1fx)%n",
+                bytes / 1e6, wallSeconds, pool.getParallelism(), reports.size() / wallSeconds,
+                bytes / 1e6 / wallSeconds, cpuNanos / 1e9, cpuNanos / 1e9 / wallSeconds);
+
+        List<FileReport> slowest = new ArrayList<>(reports);
+        slowest.sort(Comparator.comparingLong(FileReport::getNanos).reversed());
+        if (!slowest.isEmpty()) {
+            out.println("slowest:");
+        }
+        for (FileReport report : slowest.subList(0, Math.min(SLOWEST, slowest.size()))) {
+            out.printf("  %8.3f ms  %s%n", report.getNanos() / 1e6, report.getPath());
+        }
+    }
+
+    private static class CheckTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+        private final FileReport[] reports;
+        private final int from;
+        private final int to;
+
+        CheckTask(List<Path> files, FileReport[] reports, int from, int to) {
+            this.files = files;
+            this.reports = reports;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SIZE) {
+                for (int i = from; i < to; i++) {
+                    reports[i] = checkFile(files.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CheckTask(files, reports, from, middle), new CheckTask(files, reports, middle, to));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.company.check;
+
+import com.company.parser.Diagnostic;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The result of checking one source file
+ */
+public class FileReport {
+    private final Path path;
+    private final long bytes;
+    private final int statements;
+    private final List<Diagnostic> diagnostics;
+    // set when the file could not be read, diagnostics is empty then
+    private final String failure;
+    private final long nanos;
+
+    FileReport(Path path, long bytes, int statements, List<Diagnostic> diagnostics, String failure, long nanos) {
+        this.path = path;
+        this.bytes = bytes;
+        this.statements = statements;
+        this.diagnostics = diagnostics;
+        this.failure = failure;
+        this.nanos = nanos;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of top-level declarations parsed without errors
+     */
+    public int getStatements() {
+        return statements;
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return the time spent reading, scanning and parsing this file
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public boolean hasErrors() {
+        return failure != null || !diagnostics.isEmpty();
+    }
+}
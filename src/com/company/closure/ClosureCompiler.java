@@ -0,0 +1,354 @@
+package com.company.closure;
+
+import com.company.interpreter.FrameLayout;
+import com.company.interpreter.NanBox;
+import com.company.interpreter.Values;
+import com.company.output.OutputSink;
+import com.company.syntax.Expression;
+import com.company.syntax.Statement;
+import com.company.tokenizer.Token;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.company.interpreter.NanBox.OBJECT;
+import static com.company.interpreter.NanBox.isObject;
+import static com.company.interpreter.Values.isTruthy;
+import static com.company.interpreter.Values.stringify;
+
+/**
+ * 闭包编译：每个语法节点只翻译一次，变成一个已经绑定好子节点、运算符、字面量和变量槽位的 lambda
+ *
+ * Nothing is decided while the program runs: the switch on the operator happens here, a literal is captured
+ * as its value, a local as its absolute slot in the {@link Frame} (as in the bytecode VM) and a global as its name.
+ * Running the program is only calling lambdas, there is no visitor and no cast of the node.
+ * Compiling is one walk over the tree, much cheaper than generating a JVM class.
+ *
+ * Numbers stay unboxed doubles (see {@link Frame}): arithmetic, comparisons and local loads and stores
+ * allocate nothing. A Double is only created where a number leaves the frame: printing it, storing it in a global,
+ * or an operator whose operands are not both numbers, which takes the generic path through {@link Values}.
+ *
+ * Both operands of a binary operator are evaluated before either one is checked, in the order Interpreter does it.
+ */
+public class ClosureCompiler implements Expression.Visitor<Evaluator>, Statement.Visitor<Executor> {
+    private static final Evaluator NIL = frame -> {
+        frame.object = null;
+        return OBJECT;
+    };
+
+    private final Map<String, Object> globals;
+    private final OutputSink out;
+
+    private final FrameLayout layout = new FrameLayout();
+
+    /**
+     * @param globals the globals the compiled program reads and writes
+     * @param out where print writes
+     */
+    public ClosureCompiler(Map<String, Object> globals, OutputSink out) {
+        this.globals = globals;
+        this.out = out;
+    }
+
+    /**
+     * @param statements a resolved program
+     * @return
+     */
+    public ClosureProgram compile(List<Statement> statements) {
+        return new ClosureProgram(compileAll(statements), layout.getSize());
+    }
+
+    private Executor[] compileAll(List<Statement> statements) {
+        Executor[] executors = new Executor[statements.size()];
+        for (int i = 0; i < executors.length; i++) {
+            executors[i] = compile(statements.get(i));
+        }
+        return executors;
+    }
+
+    private Executor compile(Statement statement) {
+        return Statement.dispatch(statement, this);
+    }
+
+    private Evaluator compile(Expression expression) {
+        return Expression.dispatch(expression, this);
+    }
+
+    @Override
+    public Evaluator visitAssignExpression(Expression.Assign expression) {
+        Evaluator value = compile(expression.value);
+        if (expression.depth < 0) {
+            String name = expression.name.lexeme;
+            return frame -> {
+                double result = value.evaluate(frame);
+                // only an existing global is assigned
+                globals.replace(name, frame.box(result));
+                return result;
+            };
+        }
+        int slot = layout.slot(expression.depth, expression.slot);
+        return frame -> {
+            double result = value.evaluate(frame);
+            frame.store(slot, result);
+            return result;
+        };
+    }
+
+    @Override
+    public Evaluator visitBinaryExpression(Expression.Binary expression) {
+        Evaluator left = compile(expression.left);
+        Evaluator right = compile(expression.right);
+        Token operator = expression.operator;
+        switch (operator.type) {
+            case PLUS:
+                return frame -> {
+                    double a = left.evaluate(frame);
+                    Object objectA = frame.object;
+                    double b = right.evaluate(frame);
+                    if (isObject(a) || isObject(b)) {
+                        return generic(frame, operator, a, objectA, b);
+                    }
+                    return a + b;
+                };
+            case MINUS:
+                return frame -> {
+                    double a = left.evaluate(frame);
+                    Object objectA = frame.object;
+                    double b = right.evaluate(frame);
+                    if (isObject(a) || isObject(b)) {
+                        return generic(frame, operator, a, objectA, b);
+                    }
+                    return a - b;
+                };
+            case STAR:
+                return frame -> {
+                    double a = left.evaluate(frame);
+                    Object objectA = frame.object;
+                    double b = right.evaluate(frame);
+                    if (isObject(a) || isObject(b)) {
+                        return generic(frame, operator, a, objectA, b);
+                    }
+                    return a * b;
+                };
+            case SLASH:
+                return frame -> {
+                    double a = left.evaluate(frame);
+                    Object objectA = frame.object;
+                    double b = right.evaluate(frame);
+                    if (isObject(a) || isObject(b)) {
+                        return generic(frame, operator, a, objectA, b);
+                    }
+                    return a / b;
+                };
+            case GREATER:
+                return frame -> {
+                    double a = left.evaluate(frame);
+                    Object objectA = frame.object;
+                    double b = right.evaluate(frame);
+                    if (isObject(a) || isObject(b)) {
+                        return generic(frame, operator, a, objectA, b);
+                    }
+                    return frame.bool(a > b);
+                };
+            case GREATER_EQUAL:
+                return frame -> {
+                    double a = left.evaluate(frame);
+                    Object objectA = frame.object;
+                    double b = right.evaluate(frame);
+                    if (isObject(a) || isObject(b)) {
+                        return generic(frame, operator, a, objectA, b);
+                    }
+                    return frame.bool(a >= b);
+                };
+            case LESS:
+                return frame -> {
+                    double a = left.evaluate(frame);
+                    Object objectA = frame.object;
+                    double b = right.evaluate(frame);
+                    if (isObject(a) || isObject(b)) {
+                        return generic(frame, operator, a, objectA, b);
+                    }
+                    return frame.bool(a < b);
+                };
+            case LESS_EQUAL:
+                return frame -> {
+                    double a = left.evaluate(frame);
+                    Object objectA = frame.object;
+                    double b = right.evaluate(frame);
+                    if (isObject(a) || isObject(b)) {
+                        return generic(frame, operator, a, objectA, b);
+                    }
+                    return frame.bool(a <= b);
+                };
+            case EQUAL_EQUAL:
+                return frame -> {
+                    double a = left.evaluate(frame);
+                    Object objectA = frame.object;
+                    double b = right.evaluate(frame);
+                    return frame.bool(equal(frame, a, objectA, b));
+                };
+            case BANG_EQUAL:
+                return frame -> {
+                    double a = left.evaluate(frame);
+                    Object objectA = frame.object;
+                    double b = right.evaluate(frame);
+                    return frame.bool(!equal(frame, a, objectA, b));
+                };
+            default:
+                return frame -> {
+                    double a = left.evaluate(frame);
+                    Object objectA = frame.object;
+                    double b = right.evaluate(frame);
+                    return generic(frame, operator, a, objectA, b);
+                };
+        }
+    }
+
+    /**
+     * The operator applied to boxed values, for operands that are not both numbers
+     *
+     * @param frame holding the object of b
+     * @param operator
+     * @param a
+     * @param objectA the object of a, taken before b was evaluated
+     * @param b just returned by the evaluator of the right operand
+     * @return
+     */
+    private static double generic(Frame frame, Token operator, double a, Object objectA, double b) {
+        Object left = isObject(a) ? objectA : (Object) a;
+        return frame.result(Values.binary(operator, left, frame.box(b)));
+    }
+
+    private static boolean equal(Frame frame, double a, Object objectA, double b) {
+        return NanBox.equal(a, objectA, b, frame.object);
+    }
+
+    @Override
+    public Evaluator visitGroupingExpression(Expression.Grouping expression) {
+        return compile(expression.expression);
+    }
+
+    @Override
+    public Evaluator visitLiteralExpression(Expression.Literal expression) {
+        Object value = expression.value;
+        if (value instanceof Double) {
+            double number = (Double) value;
+            return frame -> number;
+        }
+        return frame -> {
+            frame.object = value;
+            return OBJECT;
+        };
+    }
+
+    @Override
+    public Evaluator visitUnaryExpression(Expression.Unary expression) {
+        Evaluator right = compile(expression.right);
+        Token operator = expression.operator;
+        switch (operator.type) {
+            case MINUS:
+                return frame -> {
+                    double value = right.evaluate(frame);
+                    if (isObject(value)) {
+                        return frame.result(Values.unary(operator, frame.object));
+                    }
+                    return -value;
+                };
+            case BANG:
+                return frame -> frame.bool(!truthy(frame, right.evaluate(frame)));
+            default:
+                return frame -> frame.result(Values.unary(operator, frame.box(right.evaluate(frame))));
+        }
+    }
+
+    @Override
+    public Evaluator visitVariableExpression(Expression.Variable expression) {
+        if (expression.depth < 0) {
+            String name = expression.name.lexeme;
+            return frame -> frame.result(globals.get(name));
+        }
+        int slot = layout.slot(expression.depth, expression.slot);
+        return frame -> frame.load(slot);
+    }
+
+    @Override
+    public Executor visitExpressionStatement(Statement.ExprStatement statement) {
+        Evaluator expression = compile(statement.expr);
+        return expression::evaluate;
+    }
+
+    @Override
+    public Executor visitPrintStatement(Statement.PrintStatement statement) {
+        Evaluator expression = compile(statement.expr);
+        return frame -> out.println(stringify(frame.box(expression.evaluate(frame))));
+    }
+
+    @Override
+    public Executor visitVarDeclaration(Statement.VarDeclaration statement) {
+        Evaluator initializer = statement.expression == null ? NIL : compile(statement.expression);
+        if (statement.slot < 0) {
+            String name = statement.name.lexeme;
+            return frame -> globals.put(name, frame.box(initializer.evaluate(frame)));
+        }
+        int slot = layout.slot(0, statement.slot);
+        return frame -> frame.store(slot, initializer.evaluate(frame));
+    }
+
+    @Override
+    public Executor visitBlockStatement(Statement.BlockStatement statement) {
+        layout.enter(statement);
+        Executor[] statements = compileAll(statement.statements);
+        layout.exit(statement);
+        switch (statements.length) {
+            case 0:
+                return frame -> {
+                };
+            case 1:
+                return statements[0];
+            case 2: {
+                Executor first = statements[0];
+                Executor second = statements[1];
+                return frame -> {
+                    first.execute(frame);
+                    second.execute(frame);
+                };
+            }
+            default:
+                return frame -> {
+                    for (Executor executor : statements) {
+                        executor.execute(frame);
+                    }
+                };
+        }
+    }
+
+    @Override
+    public Executor visitIfStatement(Statement.IfStatement statement) {
+        Evaluator condition = compile(statement.condition);
+        Executor thenBranch = compile(statement.thenBranch);
+        if (statement.elseBranch == null) {
+            return frame -> {
+                if (truthy(frame, condition.evaluate(frame))) {
+                    thenBranch.execute(frame);
+                }
+            };
+        }
+        Executor elseBranch = compile(statement.elseBranch);
+        return frame -> {
+            if (truthy(frame, condition.evaluate(frame))) {
+                thenBranch.execute(frame);
+            } else {
+                elseBranch.execute(frame);
+            }
+        };
+    }
+
+    /**
+     * @param frame
+     * @param value just returned by an evaluator
+     * @return numbers are always truthy
+     */
+    private static boolean truthy(Frame frame, double value) {
+        return !isObject(value) || isTruthy(frame.object);
+    }
+}
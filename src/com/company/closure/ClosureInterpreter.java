@@ -0,0 +1,56 @@
+package com.company.closure;
+
+import com.company.interpreter.Backend;
+import com.company.interpreter.Resolver;
+import com.company.interpreter.RuntimeError;
+import com.company.output.OutputSink;
+import com.company.output.StdoutSink;
+import com.company.syntax.Statement;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 闭包编译的执行层，语义和 {@link com.company.interpreter.Interpreter} 相同
+ *
+ * A middle tier between the tree-walking backends and the JVM class: compiling costs one walk over the tree,
+ * and the lambdas are ordinary Java code that HotSpot compiles when they get hot.
+ */
+public class ClosureInterpreter implements Backend {
+    private final Map<String, Object> globals = new HashMap<>();
+    private final Resolver resolver = new Resolver();
+    private RuntimeError error;
+    private final ClosureCompiler compiler;
+
+    public ClosureInterpreter() {
+        this(StdoutSink.INSTANCE);
+    }
+
+    /**
+     * @param out where print writes, the caller flushes it
+     */
+    public ClosureInterpreter(OutputSink out) {
+        this.compiler = new ClosureCompiler(globals, out);
+    }
+
+    @Override
+    public void interpreter(List<Statement> statements) {
+        execute(compile(statements));
+    }
+
+    public ClosureProgram compile(List<Statement> statements) {
+        resolver.resolve(statements);
+        return compiler.compile(statements);
+    }
+
+    public void execute(ClosureProgram program) {
+        error = RuntimeError.capture(program::run);
+    }
+
+    @Override
+    public RuntimeError getError() {
+        return error;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.company.closure;
+
+/**
+ * A program compiled by {@link ClosureCompiler}, it can be run any number of times
+ */
+public final class ClosureProgram {
+    private final Executor[] statements;
+    private final int frameSize;
+
+    ClosureProgram(Executor[] statements, int frameSize) {
+        this.statements = statements;
+        this.frameSize = frameSize;
+    }
+
+    /**
+     * Runs the program with a new frame, a runtime error is thrown as a {@link com.company.interpreter.RuntimeError}
+     */
+    public void run() {
+        Frame frame = new Frame(frameSize);
+        for (Executor statement : statements) {
+            statement.execute(frame);
+        }
+    }
+}
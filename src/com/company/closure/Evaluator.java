@@ -0,0 +1,14 @@
+package com.company.closure;
+
+/**
+ * A compiled expression
+ */
+@FunctionalInterface
+public interface Evaluator {
+
+    /**
+     * @param frame
+     * @return the value if it is a number, otherwise {@link com.company.interpreter.NanBox#OBJECT} with the value in frame.object
+     */
+    double evaluate(Frame frame);
+}
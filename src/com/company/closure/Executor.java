@@ -0,0 +1,9 @@
+package com.company.closure;
+
+/**
+ * A compiled statement
+ */
+@FunctionalInterface
+public interface Executor {
+    void execute(Frame frame);
+}
@@ -0,0 +1,75 @@
+package com.company.closure;
+
+import static com.company.interpreter.NanBox.OBJECT;
+import static com.company.interpreter.NanBox.isObject;
+
+/**
+ * The locals of one run of a closure-compiled program, with numbers kept unboxed
+ *
+ * Every local has an absolute slot (the base of its block plus the Resolver slot), so one frame holds all of them
+ * and nothing is created when a block is entered. A slot is stored in two parallel arrays: when objects[slot] is
+ * the NUMBER marker the value is the double in numbers[slot], otherwise it is objects[slot] (nil, a Boolean or a String).
+ *
+ * Evaluators return doubles as a {@link com.company.interpreter.NanBox}, {@link #object} is the register.
+ */
+public final class Frame {
+    private static final Object NUMBER = new Object();
+
+    private final double[] numbers;
+    private final Object[] objects;
+
+    // the value of the last evaluation that returned OBJECT
+    Object object;
+
+    Frame(int size) {
+        this.numbers = new double[size];
+        this.objects = new Object[size];
+    }
+
+    /**
+     * @param value a Lox value
+     * @return the value as an evaluator returns it
+     */
+    double result(Object value) {
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        object = value;
+        return OBJECT;
+    }
+
+    /**
+     * @param value just returned by an evaluator
+     * @return the Lox value, a number is boxed
+     */
+    Object box(double value) {
+        return isObject(value) ? object : (Object) value;
+    }
+
+    double bool(boolean value) {
+        object = value ? Boolean.TRUE : Boolean.FALSE;
+        return OBJECT;
+    }
+
+    double load(int slot) {
+        Object value = objects[slot];
+        if (value == NUMBER) {
+            return numbers[slot];
+        }
+        object = value;
+        return OBJECT;
+    }
+
+    /**
+     * @param slot
+     * @param value just returned by an evaluator
+     */
+    void store(int slot, double value) {
+        if (isObject(value)) {
+            objects[slot] = object;
+        } else {
+            numbers[slot] = value;
+            objects[slot] = NUMBER;
+        }
+    }
+}
@@ -5,7 +5,22 @@ import com.company.tokenizer.Token;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * 变量的存储
+ *
+ * The global environment keeps its variables in a HashMap by name, a global is only known at run time.
+ * Every block gets a frame: a fixed-size Object[] whose slots the Resolver assigned to the block's locals,
+ * so a local is found by walking a known number of frames out and indexing, no name is hashed.
+ *
+ * The Interpreter keeps numbers unboxed: it marks the slot with {@link #markNumber} and stores the double in its
+ * own number stack at {@link #numberIndex}, where every frame has a range of its own.
+ * A frame is either such a frame of the Interpreter or a boxed one (used by the nodes tier through getAt, assignAt
+ * and defineAt), each kind fails fast when it is used through the methods of the other one.
+ */
 public class Environment {
+    private static final Object NUMBER = new Object();
+    private static final int BOXED = -1;
+
     /**
      * 父作用域
      *
@@ -16,14 +31,50 @@ public class Environment {
      */
     private final Environment enclosing;
 
-    private final Map<String, Object> values = new HashMap<>();
+    // 全局变量，只有全局作用域有
+    // 变量名来自 Scanner 的 SymbolTable，同名的 key 是同一个 String 对象
+    private final Map<String, Object> values;
+
+    // 块作用域的局部变量，下标由 Resolver 分配
+    private final Object[] slots;
+    // 这个块的数值在 Interpreter 的数值栈里从哪里开始，不保存数值的块为 BOXED
+    private final int numberBase;
 
+    /**
+     * The global environment
+     */
     public Environment() {
-        enclosing = null;
+        this.enclosing = null;
+        this.values = new HashMap<>();
+        this.slots = null;
+        this.numberBase = BOXED;
     }
 
-    public Environment(Environment enclosing) {
+    /**
+     * A block frame with boxed values
+     *
+     * @param enclosing
+     * @param size the number of locals the block declares
+     */
+    public Environment(Environment enclosing, int size) {
+        this.enclosing = enclosing;
+        this.values = null;
+        this.slots = new Object[size];
+        this.numberBase = BOXED;
+    }
+
+    /**
+     * A block frame of the Interpreter, which can hold unboxed numbers
+     *
+     * @param enclosing
+     * @param size the number of locals the block declares
+     * @param numberBase the first of the size entries the block has in the Interpreter's number stack
+     */
+    public Environment(Environment enclosing, int size, int numberBase) {
         this.enclosing = enclosing;
+        this.values = null;
+        this.slots = new Object[size];
+        this.numberBase = numberBase;
     }
 
     /**
@@ -39,7 +90,7 @@ public class Environment {
     }
 
     /**
-     * 变量赋值
+     * 全局变量赋值
      * @param name
      * @param value
      */
@@ -47,22 +98,91 @@ public class Environment {
         if (values.containsKey(name.lexeme)) {
             values.put(name.lexeme, value);
         }
-        if (enclosing != null) {
-            // 父作用域查找变量赋值
-            enclosing.assign(name, value);
-        }
         //TODO:(weiguoliang): Throw undefine variable error
 //        throw
     }
 
     public Object get(Token name) {
-        if (values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
+        // TODO:(weiguoliang): Throw Runtime Exception when it is not defined;
+        return values.get(name.lexeme);
+    }
+
+    public void defineAt(int slot, Object value) {
+        boxed().slots[slot] = value;
+    }
+
+    /**
+     * @param depth how many frames out the variable is, from the Resolver
+     * @param slot
+     * @return
+     */
+    public Object getAt(int depth, int slot) {
+        return ancestor(depth).boxed().slots[slot];
+    }
+
+    public void assignAt(int depth, int slot, Object value) {
+        ancestor(depth).boxed().slots[slot] = value;
+    }
+
+    /**
+     * @return this frame, if it is a boxed one
+     */
+    private Environment boxed() {
+        if (numberBase != BOXED) {
+            throw new IllegalStateException("Frame of the Interpreter may hold unboxed numbers");
         }
-        if (enclosing != null) {
-            return enclosing.get(name);
+        return this;
+    }
+
+    /**
+     * @param slot
+     * @return true if the slot holds an unboxed number
+     */
+    public boolean isNumber(int slot) {
+        return slots[slot] == NUMBER;
+    }
+
+    /**
+     * @param slot
+     * @return where the number of the slot is in the Interpreter's number stack
+     */
+    public int numberIndex(int slot) {
+        if (numberBase == BOXED) {
+            throw new IllegalStateException("Boxed frame has no numbers");
+        }
+        return numberBase + slot;
+    }
+
+    /**
+     * The slot holds an unboxed number, stored at {@link #numberIndex}
+     *
+     * @param slot
+     */
+    public void markNumber(int slot) {
+        slots[slot] = NUMBER;
+    }
+
+    /**
+     * @param slot
+     * @return the value of a slot that does not hold an unboxed number (a boxed one is returned as it is)
+     */
+    public Object getObject(int slot) {
+        return slots[slot];
+    }
+
+    public void setObject(int slot, Object value) {
+        slots[slot] = value;
+    }
+
+    /**
+     * @param depth how many frames out, from the Resolver
+     * @return
+     */
+    public Environment ancestor(int depth) {
+        Environment environment = this;
+        for (int i = 0; i < depth; i++) {
+            environment = environment.enclosing;
         }
-        // TODO:(weiguoliang): Throw Runtime Exception;
-        return null;
+        return environment;
     }
 }
@@ -0,0 +1,26 @@
+package com.company.interpreter;
+
+import com.company.syntax.Statement;
+
+import java.util.List;
+
+/**
+ * 一种执行方式：tree-walking 的 Interpreter，或者其他某个 tier（--backend 选择）
+ *
+ * All of them have the same semantics, keep globals between runs and stop at the first runtime error,
+ * which they keep instead of throwing.
+ */
+public interface Backend {
+
+    /**
+     * Resolves and runs a whole program
+     *
+     * @param statements
+     */
+    void interpreter(List<Statement> statements);
+
+    /**
+     * @return the error that stopped the last run, null if it ran to the end
+     */
+    RuntimeError getError();
+}
@@ -0,0 +1,53 @@
+package com.company.interpreter;
+
+import com.company.syntax.Statement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把 Resolver 给出的 (depth, slot) 换算成一个平坦数组里的绝对位置
+ *
+ * The compiled backends (vm, closures, jvm) keep the locals in one flat array instead of an Environment per
+ * block. A compiler walks the program in order and calls {@link #enter} and {@link #exit} around every block:
+ * a block that declares variables gets the next {@code slots} entries, which are free again after it,
+ * so sibling blocks share them. Blocks without declarations have no scope in the Resolver and take no entries.
+ */
+public final class FrameLayout {
+    // the base of every enclosing block that declares variables, innermost last
+    private final List<Integer> bases = new ArrayList<>();
+    private int next;
+    private int size;
+
+    public void enter(Statement.BlockStatement block) {
+        if (block.slots == 0) {
+            return;
+        }
+        bases.add(next);
+        next += block.slots;
+        size = Math.max(size, next);
+    }
+
+    public void exit(Statement.BlockStatement block) {
+        if (block.slots == 0) {
+            return;
+        }
+        next = bases.remove(bases.size() - 1);
+    }
+
+    /**
+     * @param depth from the Resolver, 0 is the innermost block with declarations
+     * @param slot  in that block
+     * @return the index in the flat array
+     */
+    public int slot(int depth, int slot) {
+        return bases.get(bases.size() - 1 - depth) + slot;
+    }
+
+    /**
+     * @return the array size the blocks entered so far need
+     */
+    public int getSize() {
+        return size;
+    }
+}
@@ -1,80 +1,159 @@
 package com.company.interpreter;
 
 import com.company.environment.Environment;
+import com.company.output.OutputSink;
+import com.company.output.StdoutSink;
+import com.company.parser.Parser;
 import com.company.syntax.Expression;
 import com.company.syntax.Statement;
+import com.company.tokenizer.TokenType;
 
+import java.util.Arrays;
 import java.util.List;
 
+import static com.company.interpreter.NanBox.OBJECT;
+import static com.company.interpreter.NanBox.isObject;
+import static com.company.interpreter.Values.isTruthy;
+import static com.company.interpreter.Values.stringify;
+
 /**
  * 当解析完字符串生成语法树之后，接下来就是对每个语法节点进行解释计算
  * 事实上，我们可以把这个操作看成每个节点解释其自己的语义
  * 比如 Literal 节点本事就是一个值节点，所以执行该节点就是直接返回其值，对于 binary 节点则是根据 operator 计算它 left 和 right 在该操作下的结果值
  * <p>
  * 这里我们使用访问者模式，来对每种节点指定操作逻辑
+ * <p>
+ * Expressions are evaluated to a {@link NanBox}, so arithmetic, comparisons and local variables do not box
+ * numbers: a number is only boxed where it leaves the interpreter (print, a global, a visitor method).
  */
-public class Interpreter implements Expression.Visitor<Object>, Statement.Visitor<Void> {
+public class Interpreter implements Expression.Visitor<Object>, Statement.Visitor<Void>, Backend {
+
+    private final Environment globals = new Environment();
+    private Environment environment = globals;
+    private final Resolver resolver = new Resolver();
+    private final OutputSink out;
+    private RuntimeError error;
+    // NanBox 的寄存器：evaluate() 返回 OBJECT 时值在这里
+    private Object object;
+    // 局部变量里不装箱的数值：每个块从 numberTop 开始占 slots 个位置，块结束时还回去
+    private double[] numbers = new double[64];
+    private int numberTop;
+
+    public Interpreter() {
+        this(StdoutSink.INSTANCE);
+    }
 
-    private Environment environment = new Environment();
+    /**
+     * @param out where print writes, the caller flushes it
+     */
+    public Interpreter(OutputSink out) {
+        this.out = out;
+    }
 
+    @Override
     public void interpreter(List<Statement> statements) {
-        try {
+        resolver.resolve(statements);
+        error = RuntimeError.capture(() -> {
             for (Statement stmt: statements) {
                 execute(stmt);
             }
-        } catch (Exception e/*RuntimeError error*/) {
+        });
+    }
 
-        }
+    /**
+     * Pipelined mode: statements are executed as soon as the parser produces them and are garbage right after,
+     * so only the top-level declaration being executed is alive
+     *
+     * @param parser
+     */
+    public void interpreter(Parser parser) {
+        error = RuntimeError.capture(() -> {
+            Statement statement;
+            while ((statement = parser.nextStatement()) != null) {
+                resolver.resolve(statement);
+                execute(statement);
+            }
+        });
+    }
+
+    @Override
+    public RuntimeError getError() {
+        return error;
     }
 
+    // 用 kind 上的 switch 分派，而不是 accept() 虚调用：这里会遇到所有种类的节点，accept() 在此处是 megamorphic 的
     private void execute(Statement statement) {
-        statement.accept(this);
+        Statement.dispatch(statement, this);
+    }
+
+    /**
+     * 表达式求值，结果是一个 NanBox：数值不装箱直接返回，其他值放进 object 并返回 OBJECT
+     * 和 Expression.dispatch 一样按 kind 分派，访问者方法返回的是 Object，这里要的是 double
+     *
+     * @param expression
+     * @return
+     */
+    private double evaluate(Expression expression) {
+        switch (expression.kind) {
+            case Expression.ASSIGN:
+                return evaluateAssign((Expression.Assign) expression);
+            case Expression.BINARY:
+                return evaluateBinary((Expression.Binary) expression);
+            case Expression.GROUPING:
+                return evaluate(((Expression.Grouping) expression).getExpression());
+            case Expression.LITERAL:
+                return result(((Expression.Literal) expression).getValue());
+            case Expression.UNARY:
+                return evaluateUnary((Expression.Unary) expression);
+            case Expression.VARIABLE:
+                return evaluateVariable((Expression.Variable) expression);
+            default:
+                throw new IllegalStateException("Unknown kind " + expression.kind);
+        }
     }
 
     @Override
     public Object visitBinaryExpression(Expression.Binary expression) {
-        // 计算表达式左子树和右子树的值
-        Object left = evaluate(expression.getLeft());
-        Object right = evaluate(expression.getRight());
+        return box(evaluateBinary(expression));
+    }
+
+    private double evaluateBinary(Expression.Binary expression) {
+        // 计算表达式左子树和右子树的值，左边如果不是数值，要在计算右边之前把它从 object 里取出来
+        double left = evaluate(expression.getLeft());
+        Object leftObject = object;
+        double right = evaluate(expression.getRight());
 
-        switch (expression.getOperator().type) {
+        TokenType operator = expression.getOperator().type;
+        if (operator == TokenType.EQUAL_EQUAL) {
+            return bool(NanBox.equal(left, leftObject, right, object));
+        }
+        if (operator == TokenType.BANG_EQUAL) {
+            return bool(!NanBox.equal(left, leftObject, right, object));
+        }
+        if (isObject(left) || isObject(right)) {
+            // 字符串拼接，或者操作数类型不对（运行时错误）
+            return result(Values.binary(expression.getOperator(), isObject(left) ? leftObject : (Object) left, box(right)));
+        }
+        switch (operator) {
             case MINUS:
-                return (double) left - (double) right;
-            case PLUS: {
-                if (left instanceof Number && right instanceof Double) {
-                    return (double) left + (double) right;
-                }
-
-                if (left instanceof String && right instanceof String) {
-                    return (String) left + (String) right;
-                }
-                break;
-            }
+                return left - right;
+            case PLUS:
+                return left + right;
             case SLASH:
-                return (double) left / (double) right;
+                return left / right;
             case STAR:
-                return (double) left * (double) right;
+                return left * right;
             case GREATER:
-                return (double) left > (double) right;
+                return bool(left > right);
             case GREATER_EQUAL:
-                return (double) left >= (double) right;
+                return bool(left >= right);
             case LESS:
-                return (double) left < (double) right;
+                return bool(left < right);
             case LESS_EQUAL:
-                return (double) left <= (double) right;
-            case BANG_EQUAL:
-                return !isEqual(left, right);
-            case EQUAL:
-                return isEqual(left, right);
+                return bool(left <= right);
+            default:
+                return result(Values.binary(expression.getOperator(), left, right));
         }
-        return null;
-    }
-
-    private boolean isEqual(Object a, Object b) {
-        if (a == null && b == null) { return true; }
-        if (a == null) { return false; }
-        if (b == null) { return false; }
-        return a.equals(b);
     }
 
     /**
@@ -85,14 +164,9 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
      */
     @Override
     public Object visitGroupingExpression(Expression.Grouping expression) {
-        return evaluate(expression.getExpression());
+        return box(evaluate(expression.getExpression()));
     }
 
-    private Object evaluate(Expression exp) {
-        return exp.accept(this);
-    }
-
-
     /**
      * 值节点，直接返回其值即可
      */
@@ -103,41 +177,100 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 
     @Override
     public Object visitUnaryExpression(Expression.Unary expression) {
-        Object right = expression.getRight();
-        switch (expression.getOperator().type) {
-            case MINUS: {
-                return -(double) right;
-            }
-            case BANG: {
-                return !isTruthy(right);
-            }
-        }
-        return null;
+        return box(evaluateUnary(expression));
     }
 
-    private boolean isTruthy(Object object) {
-        if (object == null) return false;
-        if (object instanceof Boolean) return (boolean) object;
-        return true;
+    private double evaluateUnary(Expression.Unary expression) {
+        double right = evaluate(expression.getRight());
+        TokenType operator = expression.getOperator().type;
+        if (operator == TokenType.MINUS && !isObject(right)) {
+            return -right;
+        }
+        if (operator == TokenType.BANG) {
+            return bool(!truthy(right));
+        }
+        return result(Values.unary(expression.getOperator(), box(right)));
     }
 
     /**
      * 获取声明变量的值
+     *
+     * 局部变量按 Resolver 给出的 (depth, slot) 直接从栈帧数组里取，只有全局变量还按名字查 HashMap
      * @param expression
      * @return
      */
     @Override
     public Object visitVariableExpression(Expression.Variable expression) {
-        return environment.get(expression.getName());
+        return box(evaluateVariable(expression));
+    }
+
+    private double evaluateVariable(Expression.Variable expression) {
+        if (expression.depth < 0) {
+            return result(globals.get(expression.name));
+        }
+        Environment frame = environment.ancestor(expression.depth);
+        if (frame.isNumber(expression.slot)) {
+            return numbers[frame.numberIndex(expression.slot)];
+        }
+        return result(frame.getObject(expression.slot));
     }
 
     @Override
     public Object visitAssignExpression(Expression.Assign expression) {
-        Object value = evaluate(expression.getValue());
-        environment.assign(expression.getName(), value);
+        return box(evaluateAssign(expression));
+    }
+
+    private double evaluateAssign(Expression.Assign expression) {
+        double value = evaluate(expression.getValue());
+        if (expression.depth < 0) {
+            globals.assign(expression.name, box(value));
+        } else {
+            store(environment.ancestor(expression.depth), expression.slot, value);
+        }
         return value;
     }
 
+    /**
+     * @param value a Lox value
+     * @return the value as a NanBox
+     */
+    private double result(Object value) {
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        object = value;
+        return OBJECT;
+    }
+
+    /**
+     * @param value just returned by evaluate()
+     * @return the Lox value, a number is boxed
+     */
+    private Object box(double value) {
+        return isObject(value) ? object : (Object) value;
+    }
+
+    private double bool(boolean value) {
+        object = value ? Boolean.TRUE : Boolean.FALSE;
+        return OBJECT;
+    }
+
+    private boolean truthy(double value) {
+        return !isObject(value) || isTruthy(object);
+    }
+
+    /**
+     * 数值存成不装箱的 double
+     */
+    private void store(Environment frame, int slot, double value) {
+        if (isObject(value)) {
+            frame.setObject(slot, object);
+        } else {
+            numbers[frame.numberIndex(slot)] = value;
+            frame.markNumber(slot);
+        }
+    }
+
     @Override
     public Void visitExpressionStatement(Statement.ExprStatement statement) {
         // evaluate the statement expression
@@ -147,27 +280,49 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 
     @Override
     public Void visitPrintStatement(Statement.PrintStatement statement) {
-        Object value = evaluate(statement.getExpr());
-        System.out.println("");
+        double value = evaluate(statement.getExpr());
+        out.println(stringify(box(value)));
 
         return null;
     }
 
     @Override
     public Void visitVarDeclaration(Statement.VarDeclaration declaration) {
-        Object value = null;
+        double value;
         // if the declaration has an expression, evaluate this
         if (declaration.getExpression() != null) {
             value = evaluate(declaration.getExpression());
+        } else {
+            value = result(null);
+        }
+        if (declaration.slot < 0) {
+            globals.define(declaration.name.lexeme, box(value));
+        } else {
+            store(environment, declaration.slot, value);
         }
-        environment.define(declaration.getName().lexeme, value);
         return null;
     }
 
     @Override
     public Void visitBlockStatement(Statement.BlockStatement blockStatement) {
+        if (blockStatement.slots == 0) {
+            // 块里没有声明变量（Resolver 没有给它分配作用域），不用为它创建 Environment
+            for (Statement statement : blockStatement.statements) {
+                execute(statement);
+            }
+            return null;
+        }
         // 当访问到 block scope 时，创建一个新的 Environment 同时当前的environment 作为新 Environment 的 enclosing
-        executeBlock(blockStatement.getStatements(), new Environment(environment));
+        int base = numberTop;
+        numberTop += blockStatement.slots;
+        if (numberTop > numbers.length) {
+            numbers = Arrays.copyOf(numbers, Math.max(numbers.length * 2, numberTop));
+        }
+        try {
+            executeBlock(blockStatement.getStatements(), new Environment(environment, blockStatement.slots, base));
+        } finally {
+            numberTop = base;
+        }
         return null;
     }
 
@@ -185,7 +340,7 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 
     @Override
     public Void visitIfStatement(Statement.IfStatement ifStatement) {
-        if (isTruthy(evaluate(ifStatement.getCondition()))) {
+        if (truthy(evaluate(ifStatement.getCondition()))) {
             execute(ifStatement.getThenBranch());
         } else if (ifStatement.getElseBranch() != null) {
             execute(ifStatement.getElseBranch());
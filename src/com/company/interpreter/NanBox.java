@@ -0,0 +1,43 @@
+package com.company.interpreter;
+
+/**
+ * 数值不装箱的表示：一个 double 要么就是数值本身，要么是保留的 NaN {@link #OBJECT}，表示值在旁边的 Object 寄存器里
+ *
+ * Code that evaluates to a double returns a number as itself, and any other value (nil, a Boolean or a String)
+ * by putting it into a register the caller owns and returning OBJECT. Arithmetic never produces that bit pattern,
+ * a NaN it computes is the canonical one, so numbers go from variable to operator to variable without a Double
+ * in between. The caller has to take the register before it evaluates anything else.
+ * Used by the Interpreter (the register is a field of the interpreter) and by the closure tier (a field of the Frame).
+ */
+public final class NanBox {
+    public static final long OBJECT_BITS = 0x7FF8_0000_004C_6F78L;
+    public static final double OBJECT = Double.longBitsToDouble(OBJECT_BITS);
+
+    private NanBox() {
+    }
+
+    public static boolean isObject(double value) {
+        return Double.doubleToRawLongBits(value) == OBJECT_BITS;
+    }
+
+    /**
+     * Values.isEqual without boxing numbers: Double.equals compares the bits, so NaN equals NaN and 0 is not -0
+     *
+     * @param a
+     * @param objectA the register when a is OBJECT
+     * @param b
+     * @param objectB the register when b is OBJECT
+     * @return
+     */
+    public static boolean equal(double a, Object objectA, double b, Object objectB) {
+        boolean numberA = !isObject(a);
+        boolean numberB = !isObject(b);
+        if (numberA && numberB) {
+            return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+        }
+        if (numberA || numberB) {
+            return false;
+        }
+        return Values.isEqual(objectA, objectB);
+    }
+}
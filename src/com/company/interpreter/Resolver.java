@@ -0,0 +1,171 @@
+package com.company.interpreter;
+
+import com.company.syntax.Expression;
+import com.company.syntax.Statement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 静态解析：在执行之前确定每个局部变量引用的是哪一个声明
+ *
+ * Every block that declares variables is a scope, and every variable declared in it gets the next slot of
+ * the block's frame. Blocks without declarations get no scope and no frame, they do not count for depth either.
+ * A Variable or Assign that refers to a local gets (depth, slot): depth is how many blocks out from the
+ * current one the declaration is, slot is its index in that block's frame. The Interpreter then reads and
+ * writes Object[] frames directly, only top-level (global) variables still go through a HashMap.
+ * A BlockStatement gets the size of its frame, a local VarDeclaration its slot; globals keep -1.
+ *
+ * Resolution follows the execution order, so it matches looking names up while running:
+ * a name used before its declaration in a block refers to the outer variable, so does a name used in
+ * its own initializer, and declaring a name twice in one block reuses its slot.
+ *
+ * Resolving the same tree again gives the same result, top-level statements can be resolved one at a time.
+ */
+public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+    // innermost scope last, name -> slot
+    // the maps of scopes that were left stay in the list past depth and are cleared and reused for the next block,
+    // a program is resolved again every time it is run
+    private final List<Map<String, Integer>> scopes = new ArrayList<>();
+    private int depth;
+
+    public void resolve(List<Statement> statements) {
+        for (Statement statement : statements) {
+            resolve(statement);
+        }
+    }
+
+    public void resolve(Statement statement) {
+        Statement.dispatch(statement, this);
+    }
+
+    private void resolve(Expression expression) {
+        Expression.dispatch(expression, this);
+    }
+
+    @Override
+    public Void visitBlockStatement(Statement.BlockStatement statement) {
+        if (!declaresVariables(statement)) {
+            // 没有声明变量的块不需要自己的作用域，slots 为 0 时解释器直接在外层的 Environment 里执行它
+            statement.slots = 0;
+            resolve(statement.statements);
+            return null;
+        }
+        if (depth == scopes.size()) {
+            scopes.add(new HashMap<>());
+        }
+        Map<String, Integer> scope = scopes.get(depth++);
+        scope.clear();
+        resolve(statement.statements);
+        depth--;
+        statement.slots = scope.size();
+        return null;
+    }
+
+    private static boolean declaresVariables(Statement.BlockStatement statement) {
+        for (Statement child : statement.statements) {
+            if (child.kind == Statement.VAR_DECLARATION) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Void visitVarDeclaration(Statement.VarDeclaration statement) {
+        // the initializer is evaluated before the name is defined
+        if (statement.expression != null) {
+            resolve(statement.expression);
+        }
+        if (depth == 0) {
+            statement.slot = -1;
+            return null;
+        }
+        Map<String, Integer> scope = scopes.get(depth - 1);
+        Integer slot = scope.get(statement.name.lexeme);
+        if (slot == null) {
+            slot = scope.size();
+            scope.put(statement.name.lexeme, slot);
+        }
+        statement.slot = slot;
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpression(Expression.Variable expression) {
+        int scope = scopeOf(expression.name.lexeme);
+        expression.depth = scope < 0 ? -1 : depth - 1 - scope;
+        expression.slot = scope < 0 ? -1 : scopes.get(scope).get(expression.name.lexeme);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpression(Expression.Assign expression) {
+        resolve(expression.value);
+        int scope = scopeOf(expression.name.lexeme);
+        expression.depth = scope < 0 ? -1 : depth - 1 - scope;
+        expression.slot = scope < 0 ? -1 : scopes.get(scope).get(expression.name.lexeme);
+        return null;
+    }
+
+    /**
+     * @param name
+     * @return the index of the innermost scope declaring name, -1 for a global
+     */
+    private int scopeOf(String name) {
+        for (int i = depth - 1; i >= 0; i--) {
+            if (scopes.get(i).containsKey(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Void visitBinaryExpression(Expression.Binary expression) {
+        resolve(expression.left);
+        resolve(expression.right);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpression(Expression.Grouping expression) {
+        resolve(expression.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpression(Expression.Literal expression) {
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpression(Expression.Unary expression) {
+        resolve(expression.right);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(Statement.ExprStatement statement) {
+        resolve(statement.expr);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStatement(Statement.PrintStatement statement) {
+        resolve(statement.expr);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStatement(Statement.IfStatement statement) {
+        resolve(statement.condition);
+        resolve(statement.thenBranch);
+        if (statement.elseBranch != null) {
+            resolve(statement.elseBranch);
+        }
+        return null;
+    }
+}
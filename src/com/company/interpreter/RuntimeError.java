@@ -0,0 +1,47 @@
+package com.company.interpreter;
+
+/**
+ * 运行时错误：程序在第一个错误处停止，错误被记录在 backend 里，而不是抛给调用者
+ *
+ * The only runtime error Lox has is an operand of the wrong type for an arithmetic operator or a comparison.
+ * Every backend raises it through {@link Values#number(Object, int)} with the line of the operator, so the
+ * message is the same whichever tier ran the program. Any other exception is a bug in a backend and is not caught.
+ */
+public class RuntimeError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+
+    /**
+     * @param line    of the operator that failed
+     * @param message
+     */
+    public RuntimeError(int line, String message) {
+        super(message);
+        this.line = line;
+    }
+
+    /**
+     * Runs a program until it ends or fails
+     *
+     * @param program
+     * @return the error that stopped it, null if it ran to the end
+     */
+    public static RuntimeError capture(Runnable program) {
+        try {
+            program.run();
+            return null;
+        } catch (RuntimeError error) {
+            return error;
+        }
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        return "[line " + line + "] Runtime error: " + getMessage();
+    }
+}
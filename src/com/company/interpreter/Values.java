@@ -0,0 +1,137 @@
+package com.company.interpreter;
+
+import com.company.tokenizer.Token;
+
+/**
+ * Lox 值的运行时语义，解释器和编译期的优化（比如常量折叠）共用同一份，保证两边结果一致
+ *
+ * Values are null (nil), Boolean, Double and String.
+ */
+public final class Values {
+    private Values() {
+    }
+
+    /**
+     * false and nil are falsey, everything else is truthy
+     *
+     * @param object
+     * @return
+     */
+    public static boolean isTruthy(Object object) {
+        if (object == null) return false;
+        if (object instanceof Boolean) return (boolean) object;
+        return true;
+    }
+
+    public static boolean isEqual(Object a, Object b) {
+        if (a == null && b == null) { return true; }
+        if (a == null) { return false; }
+        if (b == null) { return false; }
+        return a.equals(b);
+    }
+
+    /**
+     * The text print shows, integral numbers are printed without ".0"
+     *
+     * @param object
+     * @return
+     */
+    public static String stringify(Object object) {
+        if (object == null) return "nil";
+        if (object instanceof Double) {
+            String text = object.toString();
+            if (text.endsWith(".0")) {
+                text = text.substring(0, text.length() - 2);
+            }
+            return text;
+        }
+        return object.toString();
+    }
+
+    /**
+     * The operand of an arithmetic operator or a comparison, the one place where a Lox program fails at runtime
+     *
+     * @param operand
+     * @param line    of the operator
+     * @return the number
+     * @throws RuntimeError if the operand is not a number
+     */
+    public static double number(Object operand, int line) {
+        if (operand instanceof Double) {
+            return (Double) operand;
+        }
+        throw new RuntimeError(line, "Operand must be a number.");
+    }
+
+    /**
+     * The generic binary operation
+     *
+     * @param operator
+     * @param left
+     * @param right
+     * @return the result, null for + on operands that are neither two numbers nor two strings, and for an operator
+     * that is not binary (both operands are still evaluated)
+     * @throws RuntimeError for an arithmetic operator or a comparison on an operand that is not a number
+     */
+    public static Object binary(Token operator, Object left, Object right) {
+        switch (operator.type) {
+            case MINUS:
+                return number(left, operator.line) - number(right, operator.line);
+            case PLUS:
+                return add(left, right);
+            case SLASH:
+                return number(left, operator.line) / number(right, operator.line);
+            case STAR:
+                return number(left, operator.line) * number(right, operator.line);
+            case GREATER:
+                return number(left, operator.line) > number(right, operator.line);
+            case GREATER_EQUAL:
+                return number(left, operator.line) >= number(right, operator.line);
+            case LESS:
+                return number(left, operator.line) < number(right, operator.line);
+            case LESS_EQUAL:
+                return number(left, operator.line) <= number(right, operator.line);
+            case BANG_EQUAL:
+                return !isEqual(left, right);
+            case EQUAL_EQUAL:
+                return isEqual(left, right);
+        }
+        return null;
+    }
+
+    /**
+     * + adds two numbers or concatenates two strings
+     *
+     * @param left
+     * @param right
+     * @return the result, null for any other operands
+     */
+    public static Object add(Object left, Object right) {
+        if (left instanceof Number && right instanceof Double) {
+            return (double) left + (double) right;
+        }
+
+        if (left instanceof String && right instanceof String) {
+            return (String) left + (String) right;
+        }
+        return null;
+    }
+
+    /**
+     * @param operator
+     * @param right
+     * @return the result, null for an operator that is not unary
+     * @throws RuntimeError for - on an operand that is not a number
+     */
+    public static Object unary(Token operator, Object right) {
+        switch (operator.type) {
+            case MINUS: {
+                return -number(right, operator.line);
+            }
+            case BANG: {
+                return !isTruthy(right);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,242 @@
+package com.company.jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个最小的 class 文件生成器，只支持 JvmCompiler 用到的部分：常量池，没有字段的类和只有 Code 属性的方法
+ *
+ * The class file version is 49 (Java 5): the verifier infers the types itself, so no StackMapTable has to be
+ * computed for the branches. Names are internal names ("java/lang/Object"), descriptors are JVM descriptors.
+ */
+final class ClassFile {
+    static final int VERSION = 49;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    // the pool is limited by its u2 count
+    static final int MAX_CONSTANTS = 0xFFFF;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int poolCount = 1;
+
+    private final int thisClass;
+    private final int superClass;
+    private final int[] interfaces;
+    private final List<byte[]> methods = new ArrayList<>();
+
+    ClassFile(String name, String superName, String... interfaceNames) {
+        thisClass = classRef(name);
+        superClass = classRef(superName);
+        interfaces = new int[interfaceNames.length];
+        for (int i = 0; i < interfaceNames.length; i++) {
+            interfaces[i] = classRef(interfaceNames[i]);
+        }
+    }
+
+    /**
+     * @return the number of constant pool slots used so far
+     */
+    int getConstantCount() {
+        return poolCount;
+    }
+
+    int utf8(String value) {
+        Integer index = entries.get("U" + value);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(CONSTANT_UTF8);
+            pool.writeUTF(value);
+        } catch (IOException e) {
+            // writeUTF fails for strings longer than 65535 bytes in modified UTF-8
+            throw new TooLargeException("String constant too long");
+        }
+        return add("U" + value, 1);
+    }
+
+    int integerConstant(int value) {
+        Integer index = entries.get("I" + value);
+        if (index != null) {
+            return index;
+        }
+        write(CONSTANT_INTEGER);
+        writeInt(value);
+        return add("I" + value, 1);
+    }
+
+    int doubleConstant(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        Integer index = entries.get("D" + bits);
+        if (index != null) {
+            return index;
+        }
+        write(CONSTANT_DOUBLE);
+        writeInt((int) (bits >>> 32));
+        writeInt((int) bits);
+        // a double takes two slots
+        return add("D" + bits, 2);
+    }
+
+    int classRef(String name) {
+        return reference("C", CONSTANT_CLASS, utf8(name), -1, name);
+    }
+
+    int string(String value) {
+        return reference("S", CONSTANT_STRING, utf8(value), -1, value);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef("F", CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef("M", CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef("IM", CONSTANT_INTERFACE_METHODREF, owner, name, descriptor);
+    }
+
+    private int memberRef(String prefix, int tag, String owner, String name, String descriptor) {
+        int nameAndType = reference("NT", CONSTANT_NAME_AND_TYPE, utf8(name), utf8(descriptor), name + " " + descriptor);
+        return reference(prefix, tag, classRef(owner), nameAndType, owner + "." + name + descriptor);
+    }
+
+    /**
+     * An entry made of one or two u2 indices
+     */
+    private int reference(String prefix, int tag, int first, int second, String key) {
+        Integer index = entries.get(prefix + key);
+        if (index != null) {
+            return index;
+        }
+        write(tag);
+        writeShort(first);
+        if (second >= 0) {
+            writeShort(second);
+        }
+        return add(prefix + key, 1);
+    }
+
+    private int add(String key, int slots) {
+        int index = poolCount;
+        poolCount += slots;
+        if (poolCount > MAX_CONSTANTS) {
+            throw new TooLargeException("Too many constants");
+        }
+        entries.put(key, index);
+        return index;
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(utf8("Code"));
+            byte[] instructions = code.toByteArray();
+            out.writeInt(12 + instructions.length);
+            out.writeShort(code.getMaxStack());
+            out.writeShort(code.getMaxLocals());
+            out.writeInt(instructions.length);
+            out.write(instructions);
+            // no exception table, no attributes
+            out.writeShort(0);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.length);
+            for (int index : interfaces) {
+                out.writeShort(index);
+            }
+            // no fields
+            out.writeShort(0);
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            // no attributes
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void write(int value) {
+        try {
+            pool.writeByte(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeShort(int value) {
+        try {
+            pool.writeShort(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeInt(int value) {
+        try {
+            pool.writeInt(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The program does not fit the limits of a class file, the caller runs it some other way
+     */
+    static final class TooLargeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TooLargeException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
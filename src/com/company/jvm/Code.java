@@ -0,0 +1,215 @@
+package com.company.jvm;
+
+import java.util.Arrays;
+
+/**
+ * The instructions of one method, with the stack depth tracked as they are added
+ *
+ * Every emit method takes the change of the operand stack in slots (a double is two),
+ * max_stack is the deepest it got. Branches go to {@link Label}s and are patched when the label is placed,
+ * offsets are u2 so a method has to stay below {@link #MAX_SIZE}.
+ */
+final class Code {
+    static final int MAX_SIZE = Short.MAX_VALUE;
+
+    static final int ACONST_NULL = 0x01;
+    static final int ICONST_1 = 0x04;
+    static final int SIPUSH = 0x11;
+    static final int LDC = 0x12;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ALOAD = 0x19;
+    static final int ASTORE = 0x3a;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int SWAP = 0x5f;
+    static final int DADD = 0x63;
+    static final int DSUB = 0x67;
+    static final int DMUL = 0x6b;
+    static final int DDIV = 0x6f;
+    static final int DNEG = 0x77;
+    static final int IXOR = 0x82;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int GOTO = 0xa7;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int INVOKEINTERFACE = 0xb9;
+    static final int CHECKCAST = 0xc0;
+    static final int INSTANCEOF = 0xc1;
+    static final int WIDE = 0xc4;
+
+    private byte[] code = new byte[1024];
+    private int size;
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Drops everything emitted after size, labels placed there must not be used any more
+     */
+    void truncate(int size) {
+        this.size = size;
+    }
+
+    int getMaxStack() {
+        return maxStack;
+    }
+
+    int getMaxLocals() {
+        return maxLocals;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(code, size);
+    }
+
+    void op(int opCode, int effect) {
+        write(opCode);
+        adjust(effect);
+    }
+
+    /**
+     * An instruction with a u2 operand, like getstatic or invokestatic
+     */
+    void op(int opCode, int operand, int effect) {
+        write(opCode);
+        writeShort(operand);
+        adjust(effect);
+    }
+
+    void invokeInterface(int method, int arguments, int effect) {
+        write(INVOKEINTERFACE);
+        writeShort(method);
+        // the receiver counts as an argument
+        write(arguments + 1);
+        write(0);
+        adjust(effect);
+    }
+
+    void ldc(int index, int effect) {
+        if (index < 256) {
+            write(LDC);
+            write(index);
+        } else {
+            write(LDC_W);
+            writeShort(index);
+        }
+        adjust(effect);
+    }
+
+    void aload(int local) {
+        local(ALOAD, local);
+        adjust(1);
+    }
+
+    void astore(int local) {
+        local(ASTORE, local);
+        adjust(-1);
+    }
+
+    private void local(int opCode, int local) {
+        if (local < 256) {
+            write(opCode);
+            write(local);
+        } else {
+            write(WIDE);
+            write(opCode);
+            writeShort(local);
+        }
+        maxLocals = Math.max(maxLocals, local + 1);
+    }
+
+    /**
+     * Declares locals that are not loaded or stored through this class
+     */
+    void useLocals(int count) {
+        maxLocals = Math.max(maxLocals, count);
+    }
+
+    void jump(int opCode, Label target, int effect) {
+        int at = size;
+        write(opCode);
+        writeShort(0);
+        adjust(effect);
+        target.use(this, at);
+    }
+
+    /**
+     * Sets the stack depth after an unconditional jump, where the code that follows is only reached by branches
+     */
+    void setStack(int stack) {
+        this.stack = stack;
+    }
+
+    int getStack() {
+        return stack;
+    }
+
+    void place(Label label) {
+        label.place(this, size);
+    }
+
+    void patch(int at, int target) {
+        int offset = target - at;
+        code[at + 1] = (byte) (offset >> 8);
+        code[at + 2] = (byte) offset;
+    }
+
+    private void adjust(int effect) {
+        stack += effect;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void write(int value) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, size * 2);
+        }
+        code[size++] = (byte) value;
+    }
+
+    private void writeShort(int value) {
+        write(value >> 8);
+        write(value);
+    }
+
+    /**
+     * A branch target, jumps to it before it is placed are patched when it is
+     */
+    static final class Label {
+        private int position = -1;
+        private int[] uses = new int[2];
+        private int useCount;
+
+        private void use(Code code, int at) {
+            if (position >= 0) {
+                code.patch(at, position);
+                return;
+            }
+            if (useCount == uses.length) {
+                uses = Arrays.copyOf(uses, useCount * 2);
+            }
+            uses[useCount++] = at;
+        }
+
+        private void place(Code code, int position) {
+            this.position = position;
+            for (int i = 0; i < useCount; i++) {
+                code.patch(uses[i], position);
+            }
+        }
+    }
+}
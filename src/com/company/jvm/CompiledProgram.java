@@ -0,0 +1,19 @@
+package com.company.jvm;
+
+import com.company.output.OutputSink;
+
+import java.util.Map;
+
+/**
+ * A Lox program compiled to a JVM class by {@link JvmCompiler}
+ */
+public interface CompiledProgram {
+
+    /**
+     * Runs the program, a runtime error is thrown as a {@link com.company.interpreter.RuntimeError}
+     *
+     * @param globals the global variables by name, read and changed by the program
+     * @param out where print writes
+     */
+    void run(Map<String, Object> globals, OutputSink out);
+}
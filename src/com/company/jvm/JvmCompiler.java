@@ -0,0 +1,459 @@
+package com.company.jvm;
+
+import com.company.interpreter.FrameLayout;
+import com.company.syntax.Expression;
+import com.company.syntax.Statement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.company.jvm.ClassFile.ACC_PRIVATE;
+import static com.company.jvm.ClassFile.ACC_PUBLIC;
+import static com.company.jvm.ClassFile.ACC_STATIC;
+
+/**
+ * 把已经过 Resolver 的语法树编译成一个 JVM 类，HotSpot 可以像普通 Java 代码一样 JIT 它
+ *
+ * The class implements {@link CompiledProgram}. Top-level statements are compiled into private static methods
+ * of under 8000 bytes each, run() calls them in order: HotSpot does not compile bigger methods, and a method
+ * has to stay below 32 KB for the u2 branch offsets. Locals only live inside top-level blocks, so no state crosses methods
+ * except the globals map and the output sink, which every method gets as locals 0 and 1.
+ *
+ * Locals 2 and 3 are scratch for the operands of a binary operation, a resolved local variable is the JVM local
+ * 4 + its absolute slot (the base of its block plus the Resolver slot, as in the bytecode VM).
+ * Values stay boxed Objects like in Interpreter, numeric operators unbox their operands through
+ * {@link com.company.interpreter.Values#number}, which gets the line of the operator as a constant and throws the
+ * runtime error for a wrong type, and use dadd, dsub, dcmpl and so on.
+ * Both operands are evaluated before either one is checked, in the order Interpreter does it.
+ */
+final class JvmCompiler implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+    static final String CLASS_NAME = "com/company/jvm/LoxProgram";
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String DOUBLE = "java/lang/Double";
+    private static final String BOOLEAN = "java/lang/Boolean";
+    private static final String MAP = "java/util/Map";
+    private static final String VALUES = "com/company/interpreter/Values";
+    private static final String OUTPUT_SINK = "com/company/output/OutputSink";
+    private static final String SEGMENT_DESCRIPTOR = "(Ljava/util/Map;Lcom/company/output/OutputSink;)V";
+
+    private static final int GLOBALS = 0;
+    private static final int OUT = 1;
+    private static final int LEFT = 2;
+    private static final int RIGHT = 3;
+    private static final int FIRST_SLOT = 4;
+
+    // HotSpot does not JIT methods of 8000 bytes or more (-XX:-DontCompileHugeMethods),
+    // a statement that would make the method that big starts the next one
+    private static final int SEGMENT_SIZE = 7999;
+
+    private ClassFile classFile;
+    private Code code;
+
+    // constant pool entries used all over the program, added once per class
+    private int doubleClass;
+    private int doubleValue;
+    private int doubleValueOf;
+    private int number;
+    private int booleanValueOf;
+    private int booleanTrue;
+    private int booleanFalse;
+    private int isEqual;
+    private int isTruthy;
+    private int add;
+    private int stringify;
+    private int println;
+    private int mapGet;
+    private int mapPut;
+    private int mapReplace;
+    private final List<String> segments = new ArrayList<>();
+
+    private final FrameLayout locals = new FrameLayout();
+
+    /**
+     * @param statements a resolved program
+     * @return the class file
+     * @throws ClassFile.TooLargeException if a single top-level statement or the constants do not fit a class file
+     */
+    byte[] compile(List<Statement> statements) {
+        classFile = new ClassFile(CLASS_NAME, OBJECT, "com/company/jvm/CompiledProgram");
+        doubleClass = classFile.classRef(DOUBLE);
+        doubleValue = classFile.methodRef(DOUBLE, "doubleValue", "()D");
+        doubleValueOf = classFile.methodRef(DOUBLE, "valueOf", "(D)Ljava/lang/Double;");
+        number = classFile.methodRef(VALUES, "number", "(Ljava/lang/Object;I)D");
+        booleanValueOf = classFile.methodRef(BOOLEAN, "valueOf", "(Z)Ljava/lang/Boolean;");
+        booleanTrue = classFile.fieldRef(BOOLEAN, "TRUE", "Ljava/lang/Boolean;");
+        booleanFalse = classFile.fieldRef(BOOLEAN, "FALSE", "Ljava/lang/Boolean;");
+        isEqual = classFile.methodRef(VALUES, "isEqual", "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+        isTruthy = classFile.methodRef(VALUES, "isTruthy", "(Ljava/lang/Object;)Z");
+        add = classFile.methodRef(VALUES, "add", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;");
+        stringify = classFile.methodRef(VALUES, "stringify", "(Ljava/lang/Object;)Ljava/lang/String;");
+        println = classFile.interfaceMethodRef(OUTPUT_SINK, "println", "(Ljava/lang/String;)V");
+        mapGet = classFile.interfaceMethodRef(MAP, "get", "(Ljava/lang/Object;)Ljava/lang/Object;");
+        mapPut = classFile.interfaceMethodRef(MAP, "put", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;");
+        mapReplace = classFile.interfaceMethodRef(MAP, "replace", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;");
+        code = new Code();
+        for (Statement statement : statements) {
+            int mark = code.size();
+            compile(statement);
+            if (code.size() > SEGMENT_SIZE && mark > 0) {
+                // start over with the statement in the next method
+                code.truncate(mark);
+                finishSegment();
+                compile(statement);
+            }
+            // a single statement may still be huge, it runs in the JVM interpreter then
+            if (code.size() > Code.MAX_SIZE) {
+                throw new ClassFile.TooLargeException("Statement too large for one method");
+            }
+        }
+        if (code.size() > 0) {
+            finishSegment();
+        }
+
+        Code constructor = new Code();
+        constructor.aload(0);
+        constructor.op(Code.INVOKESPECIAL, classFile.methodRef(OBJECT, "<init>", "()V"), -1);
+        constructor.op(Code.RETURN, 0);
+        classFile.addMethod(ACC_PUBLIC, "<init>", "()V", constructor);
+
+        Code run = new Code();
+        run.useLocals(3);
+        for (String segment : segments) {
+            run.aload(1);
+            run.aload(2);
+            run.op(Code.INVOKESTATIC, classFile.methodRef(CLASS_NAME, segment, SEGMENT_DESCRIPTOR), -2);
+        }
+        run.op(Code.RETURN, 0);
+        if (run.size() > Code.MAX_SIZE) {
+            throw new ClassFile.TooLargeException("Too many methods");
+        }
+        classFile.addMethod(ACC_PUBLIC, "run", SEGMENT_DESCRIPTOR, run);
+        return classFile.toByteArray();
+    }
+
+    private void finishSegment() {
+        code.op(Code.RETURN, 0);
+        code.useLocals(FIRST_SLOT);
+        String name = "s" + segments.size();
+        segments.add(name);
+        classFile.addMethod(ACC_PRIVATE | ACC_STATIC, name, SEGMENT_DESCRIPTOR, code);
+        code = new Code();
+    }
+
+    private void compile(Statement statement) {
+        Statement.dispatch(statement, this);
+    }
+
+    private void compile(Expression expression) {
+        Expression.dispatch(expression, this);
+    }
+
+    @Override
+    public Void visitAssignExpression(Expression.Assign expression) {
+        compile(expression.value);
+        code.op(Code.DUP, 1);
+        if (expression.depth < 0) {
+            code.astore(LEFT);
+            code.aload(GLOBALS);
+            code.ldc(classFile.string(expression.name.lexeme), 1);
+            code.aload(LEFT);
+            // only an existing global is assigned
+            code.invokeInterface(mapReplace, 2, -2);
+            code.op(Code.POP, -1);
+        } else {
+            code.astore(local(expression.depth, expression.slot));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpression(Expression.Binary expression) {
+        compile(expression.left);
+        compile(expression.right);
+        int line = expression.operator.line;
+        switch (expression.operator.type) {
+            case PLUS:
+                add();
+                break;
+            case MINUS:
+                arithmetic(Code.DSUB, line);
+                break;
+            case STAR:
+                arithmetic(Code.DMUL, line);
+                break;
+            case SLASH:
+                arithmetic(Code.DDIV, line);
+                break;
+            // the same comparison and branch javac uses, so NaN compares false
+            case LESS:
+                comparison(Code.DCMPG, Code.IFGE, line);
+                break;
+            case LESS_EQUAL:
+                comparison(Code.DCMPG, Code.IFGT, line);
+                break;
+            case GREATER:
+                comparison(Code.DCMPL, Code.IFLE, line);
+                break;
+            case GREATER_EQUAL:
+                comparison(Code.DCMPL, Code.IFLT, line);
+                break;
+            case EQUAL_EQUAL:
+                code.op(Code.INVOKESTATIC, isEqual, -1);
+                boxBoolean();
+                break;
+            case BANG_EQUAL:
+                code.op(Code.INVOKESTATIC, isEqual, -1);
+                not();
+                break;
+            default:
+                // nil, like Values.binary
+                code.op(Code.POP, -1);
+                code.op(Code.POP, -1);
+                code.op(Code.ACONST_NULL, 1);
+                break;
+        }
+        return null;
+    }
+
+    /**
+     * left and right on the stack: dadd for two numbers, Values.add for everything else
+     */
+    private void add() {
+        code.astore(RIGHT);
+        code.astore(LEFT);
+        int stack = code.getStack();
+        Code.Label generic = new Code.Label();
+        Code.Label end = new Code.Label();
+        code.aload(LEFT);
+        code.op(Code.INSTANCEOF, doubleClass, 0);
+        code.jump(Code.IFEQ, generic, -1);
+        code.aload(RIGHT);
+        code.op(Code.INSTANCEOF, doubleClass, 0);
+        code.jump(Code.IFEQ, generic, -1);
+        code.aload(LEFT);
+        unbox();
+        code.aload(RIGHT);
+        unbox();
+        code.op(Code.DADD, -2);
+        boxDouble();
+        code.jump(Code.GOTO, end, 0);
+        code.setStack(stack);
+        code.place(generic);
+        code.aload(LEFT);
+        code.aload(RIGHT);
+        code.op(Code.INVOKESTATIC, add, -1);
+        code.place(end);
+    }
+
+    /**
+     * left and right on the stack
+     */
+    private void arithmetic(int opCode, int line) {
+        code.astore(RIGHT);
+        number(line);
+        code.aload(RIGHT);
+        number(line);
+        code.op(opCode, -2);
+        boxDouble();
+    }
+
+    /**
+     * left and right on the stack
+     *
+     * @param compare dcmpl or dcmpg
+     * @param ifFalse the branch taken when the comparison is false
+     * @param line    of the operator
+     */
+    private void comparison(int compare, int ifFalse, int line) {
+        code.astore(RIGHT);
+        number(line);
+        code.aload(RIGHT);
+        number(line);
+        code.op(compare, -3);
+        int stack = code.getStack() - 1;
+        Code.Label isFalse = new Code.Label();
+        Code.Label end = new Code.Label();
+        code.jump(ifFalse, isFalse, -1);
+        code.op(Code.GETSTATIC, booleanTrue, 1);
+        code.jump(Code.GOTO, end, 0);
+        code.setStack(stack);
+        code.place(isFalse);
+        code.op(Code.GETSTATIC, booleanFalse, 1);
+        code.place(end);
+    }
+
+    /**
+     * Double on the stack to double
+     */
+    private void unbox() {
+        code.op(Code.CHECKCAST, doubleClass, 0);
+        code.op(Code.INVOKEVIRTUAL, doubleValue, 1);
+    }
+
+    /**
+     * Object on the stack to double, a null or a non-number is the runtime error of the operator on line
+     */
+    private void number(int line) {
+        if (line <= Short.MAX_VALUE) {
+            code.op(Code.SIPUSH, line, 1);
+        } else {
+            code.ldc(classFile.integerConstant(line), 1);
+        }
+        code.op(Code.INVOKESTATIC, number, 0);
+    }
+
+    private void boxDouble() {
+        code.op(Code.INVOKESTATIC, doubleValueOf, -1);
+    }
+
+    /**
+     * boolean (int) on the stack to Boolean
+     */
+    private void boxBoolean() {
+        code.op(Code.INVOKESTATIC, booleanValueOf, 0);
+    }
+
+    /**
+     * boolean (int) on the stack to the negated Boolean
+     */
+    private void not() {
+        code.op(Code.ICONST_1, 1);
+        code.op(Code.IXOR, -1);
+        boxBoolean();
+    }
+
+    @Override
+    public Void visitGroupingExpression(Expression.Grouping expression) {
+        compile(expression.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpression(Expression.Literal expression) {
+        Object value = expression.value;
+        if (value == null) {
+            code.op(Code.ACONST_NULL, 1);
+        } else if (value instanceof Boolean) {
+            code.op(Code.GETSTATIC, (Boolean) value ? booleanTrue : booleanFalse, 1);
+        } else if (value instanceof Double) {
+            // boxed where it is used, escape analysis removes the box when an operator unboxes it right away
+            code.op(Code.LDC2_W, classFile.doubleConstant((Double) value), 2);
+            boxDouble();
+        } else {
+            code.ldc(classFile.string((String) value), 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpression(Expression.Unary expression) {
+        compile(expression.right);
+        switch (expression.operator.type) {
+            case MINUS:
+                number(expression.operator.line);
+                code.op(Code.DNEG, 0);
+                boxDouble();
+                break;
+            case BANG:
+                code.op(Code.INVOKESTATIC, isTruthy, 0);
+                not();
+                break;
+            default:
+                code.op(Code.POP, -1);
+                code.op(Code.ACONST_NULL, 1);
+                break;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpression(Expression.Variable expression) {
+        if (expression.depth < 0) {
+            code.aload(GLOBALS);
+            code.ldc(classFile.string(expression.name.lexeme), 1);
+            code.invokeInterface(mapGet, 1, -1);
+        } else {
+            code.aload(local(expression.depth, expression.slot));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(Statement.ExprStatement statement) {
+        compile(statement.expr);
+        code.op(Code.POP, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStatement(Statement.PrintStatement statement) {
+        compile(statement.expr);
+        code.op(Code.INVOKESTATIC, stringify, 0);
+        code.aload(OUT);
+        code.op(Code.SWAP, 0);
+        code.invokeInterface(println, 1, -2);
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(Statement.VarDeclaration statement) {
+        if (statement.slot < 0) {
+            code.aload(GLOBALS);
+            code.ldc(classFile.string(statement.name.lexeme), 1);
+            initializer(statement);
+            code.invokeInterface(mapPut, 2, -2);
+            code.op(Code.POP, -1);
+        } else {
+            initializer(statement);
+            code.astore(local(0, statement.slot));
+        }
+        return null;
+    }
+
+    private void initializer(Statement.VarDeclaration statement) {
+        if (statement.expression != null) {
+            compile(statement.expression);
+        } else {
+            code.op(Code.ACONST_NULL, 1);
+        }
+    }
+
+    @Override
+    public Void visitBlockStatement(Statement.BlockStatement statement) {
+        locals.enter(statement);
+        for (Statement child : statement.statements) {
+            compile(child);
+        }
+        locals.exit(statement);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStatement(Statement.IfStatement statement) {
+        compile(statement.condition);
+        code.op(Code.INVOKESTATIC, isTruthy, 0);
+        Code.Label elseBranch = new Code.Label();
+        code.jump(Code.IFEQ, elseBranch, -1);
+        compile(statement.thenBranch);
+        if (statement.elseBranch == null) {
+            code.place(elseBranch);
+            return null;
+        }
+        Code.Label end = new Code.Label();
+        code.jump(Code.GOTO, end, 0);
+        code.place(elseBranch);
+        compile(statement.elseBranch);
+        code.place(end);
+        return null;
+    }
+
+    /**
+     * @param depth from the Resolver, 0 is the innermost block with declarations
+     * @param slot  in that block
+     * @return the JVM local
+     */
+    private int local(int depth, int slot) {
+        return FIRST_SLOT + locals.slot(depth, slot);
+    }
+}
@@ -0,0 +1,81 @@
+package com.company.jvm;
+
+import com.company.interpreter.Backend;
+import com.company.interpreter.Resolver;
+import com.company.interpreter.RuntimeError;
+import com.company.output.OutputSink;
+import com.company.output.StdoutSink;
+import com.company.syntax.Statement;
+import com.company.vm.Compiler;
+import com.company.vm.VM;
+
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把程序编译成 JVM 类再执行，语义和 {@link com.company.interpreter.Interpreter} 相同
+ *
+ * The class from {@link JvmCompiler} is defined as a hidden class next to this one, so it can be unloaded
+ * again once the program is no longer referenced. A program that does not fit into a class file
+ * (a single top-level statement over 32 KB of bytecode, or more than 65535 constants) runs on the bytecode VM.
+ * A runtime error stops the program, as in Interpreter, and is kept for {@link #getError()}.
+ */
+public class JvmInterpreter implements Backend {
+    private final Map<String, Object> globals = new HashMap<>();
+    private final Resolver resolver = new Resolver();
+    private final OutputSink out;
+    private RuntimeError error;
+
+    public JvmInterpreter() {
+        this(StdoutSink.INSTANCE);
+    }
+
+    /**
+     * @param out where print writes, the caller flushes it
+     */
+    public JvmInterpreter(OutputSink out) {
+        this.out = out;
+    }
+
+    @Override
+    public void interpreter(List<Statement> statements) {
+        resolver.resolve(statements);
+        CompiledProgram program;
+        try {
+            program = compile(statements);
+        } catch (ClassFile.TooLargeException e) {
+            VM vm = new VM(globals, out);
+            vm.run(new Compiler().compile(statements));
+            error = vm.getError();
+            return;
+        }
+        execute(program);
+    }
+
+    /**
+     * @param statements a resolved program
+     * @return
+     * @throws ClassFile.TooLargeException if the program does not fit into a class file
+     */
+    public CompiledProgram compile(List<Statement> statements) {
+        byte[] bytes = new JvmCompiler().compile(statements);
+        try {
+            Class<?> type = MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+            return (CompiledProgram) type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not load the compiled program", e);
+        }
+    }
+
+    public void execute(CompiledProgram program) {
+        error = RuntimeError.capture(() -> program.run(globals, out));
+    }
+
+    @Override
+    public RuntimeError getError() {
+        return error;
+    }
+
+}
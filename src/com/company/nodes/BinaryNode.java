@@ -0,0 +1,247 @@
+package com.company.nodes;
+
+import com.company.environment.Environment;
+import com.company.interpreter.Values;
+import com.company.tokenizer.Token;
+
+/**
+ * 二元运算节点，根据第一次执行时看到的操作数类型把自己改写成专门的节点
+ *
+ * A new node is {@link Uninitialized}. Its first execution looks at the operand values and replaces it with
+ * a specialized node: {@link DoubleAdd} when a + sees two numbers, {@link StringConcat} when it sees two strings,
+ * {@link DoubleLess} for a < on numbers and so on. The specialized node only checks its guard and computes,
+ * there is no switch on the operator and no cast that can fail.
+ *
+ * When the guard fails the node de-specializes: it replaces itself with {@link Generic}, which handles every
+ * operand type like Interpreter does and is never rewritten again, so a node that sees mixed types stops changing.
+ * The operands are evaluated once in either case, a rewrite reuses the values that were already computed.
+ *
+ * == and != have no specialization, Double.equals differs from a double comparison for NaN and -0.
+ */
+public abstract class BinaryNode extends ExpressionNode {
+    protected final Token operator;
+    protected ExpressionNode left;
+    protected ExpressionNode right;
+
+    BinaryNode(Token operator, ExpressionNode left, ExpressionNode right) {
+        this.operator = operator;
+        this.left = adopt(left);
+        this.right = adopt(right);
+    }
+
+    /**
+     * @param operator
+     * @param left
+     * @param right
+     * @return a node that specializes on its first execution
+     */
+    public static BinaryNode create(Token operator, ExpressionNode left, ExpressionNode right) {
+        return new Uninitialized(operator, left, right);
+    }
+
+    @Override
+    public final Object execute(Environment frame) {
+        Object leftValue = left.execute(frame);
+        Object rightValue = right.execute(frame);
+        return execute(leftValue, rightValue);
+    }
+
+    protected abstract Object execute(Object left, Object right);
+
+    /**
+     * Replaces this node with the one that handles every type, for a specialized node whose guard failed
+     */
+    protected final Object despecialize(Object leftValue, Object rightValue) {
+        return replace(new Generic(operator, left, right)).execute(leftValue, rightValue);
+    }
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (child == left) {
+            left = (ExpressionNode) replacement;
+        } else if (child == right) {
+            right = (ExpressionNode) replacement;
+        } else {
+            super.replaceChild(child, replacement);
+        }
+    }
+
+    public static final class Uninitialized extends BinaryNode {
+        Uninitialized(Token operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected Object execute(Object leftValue, Object rightValue) {
+            return replace(specialize(leftValue, rightValue)).execute(leftValue, rightValue);
+        }
+
+        private BinaryNode specialize(Object leftValue, Object rightValue) {
+            boolean numbers = leftValue instanceof Double && rightValue instanceof Double;
+            switch (operator.type) {
+                case PLUS:
+                    if (numbers) {
+                        return new DoubleAdd(operator, left, right);
+                    }
+                    if (leftValue instanceof String && rightValue instanceof String) {
+                        return new StringConcat(operator, left, right);
+                    }
+                    break;
+                case MINUS:
+                    return numbers ? new DoubleSubtract(operator, left, right) : new Generic(operator, left, right);
+                case STAR:
+                    return numbers ? new DoubleMultiply(operator, left, right) : new Generic(operator, left, right);
+                case SLASH:
+                    return numbers ? new DoubleDivide(operator, left, right) : new Generic(operator, left, right);
+                case LESS:
+                    return numbers ? new DoubleLess(operator, left, right) : new Generic(operator, left, right);
+                case LESS_EQUAL:
+                    return numbers ? new DoubleLessEqual(operator, left, right) : new Generic(operator, left, right);
+                case GREATER:
+                    return numbers ? new DoubleGreater(operator, left, right) : new Generic(operator, left, right);
+                case GREATER_EQUAL:
+                    return numbers ? new DoubleGreaterEqual(operator, left, right) : new Generic(operator, left, right);
+                default:
+                    break;
+            }
+            return new Generic(operator, left, right);
+        }
+    }
+
+    public static final class Generic extends BinaryNode {
+        Generic(Token operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected Object execute(Object leftValue, Object rightValue) {
+            return Values.binary(operator, leftValue, rightValue);
+        }
+    }
+
+    public static final class DoubleAdd extends BinaryNode {
+        DoubleAdd(Token operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected Object execute(Object leftValue, Object rightValue) {
+            if (leftValue instanceof Double && rightValue instanceof Double) {
+                return (Double) leftValue + (Double) rightValue;
+            }
+            return despecialize(leftValue, rightValue);
+        }
+    }
+
+    public static final class StringConcat extends BinaryNode {
+        StringConcat(Token operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected Object execute(Object leftValue, Object rightValue) {
+            if (leftValue instanceof String && rightValue instanceof String) {
+                return (String) leftValue + (String) rightValue;
+            }
+            return despecialize(leftValue, rightValue);
+        }
+    }
+
+    public static final class DoubleSubtract extends BinaryNode {
+        DoubleSubtract(Token operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected Object execute(Object leftValue, Object rightValue) {
+            if (leftValue instanceof Double && rightValue instanceof Double) {
+                return (Double) leftValue - (Double) rightValue;
+            }
+            return despecialize(leftValue, rightValue);
+        }
+    }
+
+    public static final class DoubleMultiply extends BinaryNode {
+        DoubleMultiply(Token operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected Object execute(Object leftValue, Object rightValue) {
+            if (leftValue instanceof Double && rightValue instanceof Double) {
+                return (Double) leftValue * (Double) rightValue;
+            }
+            return despecialize(leftValue, rightValue);
+        }
+    }
+
+    public static final class DoubleDivide extends BinaryNode {
+        DoubleDivide(Token operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected Object execute(Object leftValue, Object rightValue) {
+            if (leftValue instanceof Double && rightValue instanceof Double) {
+                return (Double) leftValue / (Double) rightValue;
+            }
+            return despecialize(leftValue, rightValue);
+        }
+    }
+
+    public static final class DoubleLess extends BinaryNode {
+        DoubleLess(Token operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected Object execute(Object leftValue, Object rightValue) {
+            if (leftValue instanceof Double && rightValue instanceof Double) {
+                return (Double) leftValue < (Double) rightValue;
+            }
+            return despecialize(leftValue, rightValue);
+        }
+    }
+
+    public static final class DoubleLessEqual extends BinaryNode {
+        DoubleLessEqual(Token operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected Object execute(Object leftValue, Object rightValue) {
+            if (leftValue instanceof Double && rightValue instanceof Double) {
+                return (Double) leftValue <= (Double) rightValue;
+            }
+            return despecialize(leftValue, rightValue);
+        }
+    }
+
+    public static final class DoubleGreater extends BinaryNode {
+        DoubleGreater(Token operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected Object execute(Object leftValue, Object rightValue) {
+            if (leftValue instanceof Double && rightValue instanceof Double) {
+                return (Double) leftValue > (Double) rightValue;
+            }
+            return despecialize(leftValue, rightValue);
+        }
+    }
+
+    public static final class DoubleGreaterEqual extends BinaryNode {
+        DoubleGreaterEqual(Token operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected Object execute(Object leftValue, Object rightValue) {
+            if (leftValue instanceof Double && rightValue instanceof Double) {
+                return (Double) leftValue >= (Double) rightValue;
+            }
+            return despecialize(leftValue, rightValue);
+        }
+    }
+}
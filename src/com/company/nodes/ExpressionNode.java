@@ -0,0 +1,118 @@
+package com.company.nodes;
+
+import com.company.environment.Environment;
+import com.company.tokenizer.Token;
+
+/**
+ * 可执行的表达式节点，执行的结果是 Lox 的值
+ *
+ * Literals and variable accesses never change, the resolved (depth, slot) of a local is fixed when the node is built.
+ * Operators are in {@link BinaryNode} and {@link UnaryNode}.
+ */
+public abstract class ExpressionNode extends Node {
+
+    /**
+     * @param frame the innermost block frame, or the globals at the top level
+     * @return
+     */
+    public abstract Object execute(Environment frame);
+
+    public static final class Literal extends ExpressionNode {
+        private final Object value;
+
+        public Literal(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            return value;
+        }
+    }
+
+    public static final class LocalRead extends ExpressionNode {
+        private final int depth;
+        private final int slot;
+
+        public LocalRead(int depth, int slot) {
+            this.depth = depth;
+            this.slot = slot;
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            return frame.getAt(depth, slot);
+        }
+    }
+
+    public static final class GlobalRead extends ExpressionNode {
+        private final Environment globals;
+        private final Token name;
+
+        public GlobalRead(Environment globals, Token name) {
+            this.globals = globals;
+            this.name = name;
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            return globals.get(name);
+        }
+    }
+
+    public static final class LocalWrite extends ExpressionNode {
+        private final int depth;
+        private final int slot;
+        private ExpressionNode value;
+
+        public LocalWrite(int depth, int slot, ExpressionNode value) {
+            this.depth = depth;
+            this.slot = slot;
+            this.value = adopt(value);
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            Object result = value.execute(frame);
+            frame.assignAt(depth, slot, result);
+            return result;
+        }
+
+        @Override
+        protected void replaceChild(Node child, Node replacement) {
+            if (child == value) {
+                value = (ExpressionNode) replacement;
+            } else {
+                super.replaceChild(child, replacement);
+            }
+        }
+    }
+
+    public static final class GlobalWrite extends ExpressionNode {
+        private final Environment globals;
+        private final Token name;
+        private ExpressionNode value;
+
+        public GlobalWrite(Environment globals, Token name, ExpressionNode value) {
+            this.globals = globals;
+            this.name = name;
+            this.value = adopt(value);
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            Object result = value.execute(frame);
+            globals.assign(name, result);
+            return result;
+        }
+
+        @Override
+        protected void replaceChild(Node child, Node replacement) {
+            if (child == value) {
+                value = (ExpressionNode) replacement;
+            } else {
+                super.replaceChild(child, replacement);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.company.nodes;
+
+/**
+ * 可执行语法树的节点，和 syntax 包里的语法树不同，这里的节点在执行时可以把自己替换成另一个节点
+ *
+ * A node that has seen the types of its operands rewrites itself into a node specialized for them
+ * (see {@link BinaryNode}), the parent keeps calling whatever node is in its child field now.
+ * Every node knows its parent so it can swap itself out, a parent adopts its children when it is created.
+ */
+public abstract class Node {
+    private Node parent;
+
+    public Node getParent() {
+        return parent;
+    }
+
+    protected final <T extends Node> T adopt(T child) {
+        if (child != null) {
+            ((Node) child).parent = this;
+        }
+        return child;
+    }
+
+    /**
+     * Puts replacement into this node's place in the parent, this node is not used again
+     *
+     * @param replacement
+     * @return replacement
+     */
+    protected final <T extends Node> T replace(T replacement) {
+        parent.replaceChild(this, replacement);
+        ((Node) replacement).parent = parent;
+        return replacement;
+    }
+
+    /**
+     * Nodes with replaceable children override this and swap the field that holds child
+     *
+     * @param child
+     * @param replacement
+     */
+    protected void replaceChild(Node child, Node replacement) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no child " + child.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,115 @@
+package com.company.nodes;
+
+import com.company.environment.Environment;
+import com.company.output.OutputSink;
+import com.company.syntax.Expression;
+import com.company.syntax.Statement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把已经过 Resolver 的语法树翻译成可执行节点，每个语法节点只翻译一次
+ *
+ * Variables become local or global reads and writes depending on the resolved depth, Grouping disappears,
+ * and a block that declares nothing becomes a {@link StatementNode.Sequence} without its own frame.
+ */
+public class NodeBuilder implements Expression.Visitor<ExpressionNode>, Statement.Visitor<StatementNode> {
+    private final Environment globals;
+    private final OutputSink out;
+
+    /**
+     * @param globals the environment global variables are read from and written to
+     * @param out where print writes
+     */
+    public NodeBuilder(Environment globals, OutputSink out) {
+        this.globals = globals;
+        this.out = out;
+    }
+
+    public List<StatementNode> build(List<Statement> statements) {
+        List<StatementNode> nodes = new ArrayList<>(statements.size());
+        for (Statement statement : statements) {
+            nodes.add(build(statement));
+        }
+        return nodes;
+    }
+
+    public StatementNode build(Statement statement) {
+        return statement == null ? null : Statement.dispatch(statement, this);
+    }
+
+    public ExpressionNode build(Expression expression) {
+        return expression == null ? null : Expression.dispatch(expression, this);
+    }
+
+    @Override
+    public ExpressionNode visitAssignExpression(Expression.Assign expression) {
+        ExpressionNode value = build(expression.value);
+        if (expression.depth < 0) {
+            return new ExpressionNode.GlobalWrite(globals, expression.name, value);
+        }
+        return new ExpressionNode.LocalWrite(expression.depth, expression.slot, value);
+    }
+
+    @Override
+    public ExpressionNode visitBinaryExpression(Expression.Binary expression) {
+        return BinaryNode.create(expression.operator, build(expression.left), build(expression.right));
+    }
+
+    @Override
+    public ExpressionNode visitGroupingExpression(Expression.Grouping expression) {
+        return build(expression.expression);
+    }
+
+    @Override
+    public ExpressionNode visitLiteralExpression(Expression.Literal expression) {
+        return new ExpressionNode.Literal(expression.value);
+    }
+
+    @Override
+    public ExpressionNode visitUnaryExpression(Expression.Unary expression) {
+        return UnaryNode.create(expression.operator, build(expression.right));
+    }
+
+    @Override
+    public ExpressionNode visitVariableExpression(Expression.Variable expression) {
+        if (expression.depth < 0) {
+            return new ExpressionNode.GlobalRead(globals, expression.name);
+        }
+        return new ExpressionNode.LocalRead(expression.depth, expression.slot);
+    }
+
+    @Override
+    public StatementNode visitExpressionStatement(Statement.ExprStatement statement) {
+        return new StatementNode.ExpressionStatement(build(statement.expr));
+    }
+
+    @Override
+    public StatementNode visitPrintStatement(Statement.PrintStatement statement) {
+        return new StatementNode.Print(out, build(statement.expr));
+    }
+
+    @Override
+    public StatementNode visitVarDeclaration(Statement.VarDeclaration statement) {
+        ExpressionNode initializer = build(statement.expression);
+        if (statement.slot < 0) {
+            return new StatementNode.GlobalDeclaration(globals, statement.name.lexeme, initializer);
+        }
+        return new StatementNode.LocalDeclaration(statement.slot, initializer);
+    }
+
+    @Override
+    public StatementNode visitBlockStatement(Statement.BlockStatement statement) {
+        StatementNode[] statements = build(statement.statements).toArray(new StatementNode[0]);
+        if (statement.slots == 0) {
+            return new StatementNode.Sequence(statements);
+        }
+        return new StatementNode.Block(statement.slots, statements);
+    }
+
+    @Override
+    public StatementNode visitIfStatement(Statement.IfStatement statement) {
+        return new StatementNode.If(build(statement.condition), build(statement.thenBranch), build(statement.elseBranch));
+    }
+}
@@ -0,0 +1,60 @@
+package com.company.nodes;
+
+import com.company.environment.Environment;
+import com.company.interpreter.Backend;
+import com.company.interpreter.Resolver;
+import com.company.interpreter.RuntimeError;
+import com.company.output.OutputSink;
+import com.company.output.StdoutSink;
+import com.company.syntax.Statement;
+
+import java.util.List;
+
+/**
+ * 基于自我特化节点的执行层，语义和 {@link com.company.interpreter.Interpreter} 相同
+ *
+ * The program is resolved and translated into nodes once, the nodes specialize themselves on the operand
+ * types they see while running (see {@link BinaryNode}). A program built with {@link #build(List)} keeps its
+ * specializations, executing it again runs the already rewritten nodes.
+ */
+public class NodeInterpreter implements Backend {
+    private final Environment globals = new Environment();
+    private final Resolver resolver = new Resolver();
+    private RuntimeError error;
+    private final NodeBuilder builder;
+
+    public NodeInterpreter() {
+        this(StdoutSink.INSTANCE);
+    }
+
+    /**
+     * @param out where print writes, the caller flushes it
+     */
+    public NodeInterpreter(OutputSink out) {
+        this.builder = new NodeBuilder(globals, out);
+    }
+
+    @Override
+    public void interpreter(List<Statement> statements) {
+        execute(build(statements));
+    }
+
+    public List<StatementNode> build(List<Statement> statements) {
+        resolver.resolve(statements);
+        return builder.build(statements);
+    }
+
+    public void execute(List<StatementNode> program) {
+        error = RuntimeError.capture(() -> {
+            for (StatementNode statement : program) {
+                statement.execute(globals);
+            }
+        });
+    }
+
+    @Override
+    public RuntimeError getError() {
+        return error;
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.company.nodes;
+
+import com.company.environment.Environment;
+import com.company.output.OutputSink;
+
+import static com.company.interpreter.Values.isTruthy;
+import static com.company.interpreter.Values.stringify;
+
+/**
+ * 可执行的语句节点
+ *
+ * The frame is passed down instead of kept in a field: a {@link Block} creates the frame for its locals
+ * and executes its children with it, a {@link Sequence} (a block without declarations) passes its own frame on.
+ */
+public abstract class StatementNode extends Node {
+
+    public abstract void execute(Environment frame);
+
+    /**
+     * Base for statements with a single expression child
+     */
+    abstract static class WithExpression extends StatementNode {
+        protected ExpressionNode expression;
+
+        WithExpression(ExpressionNode expression) {
+            this.expression = adopt(expression);
+        }
+
+        @Override
+        protected void replaceChild(Node child, Node replacement) {
+            if (child == expression) {
+                expression = (ExpressionNode) replacement;
+            } else {
+                super.replaceChild(child, replacement);
+            }
+        }
+    }
+
+    public static final class ExpressionStatement extends WithExpression {
+        public ExpressionStatement(ExpressionNode expression) {
+            super(expression);
+        }
+
+        @Override
+        public void execute(Environment frame) {
+            expression.execute(frame);
+        }
+    }
+
+    public static final class Print extends WithExpression {
+        private final OutputSink out;
+
+        public Print(OutputSink out, ExpressionNode expression) {
+            super(expression);
+            this.out = out;
+        }
+
+        @Override
+        public void execute(Environment frame) {
+            out.println(stringify(expression.execute(frame)));
+        }
+    }
+
+    public static final class LocalDeclaration extends WithExpression {
+        private final int slot;
+
+        /**
+         * @param slot
+         * @param initializer null for a declaration without one
+         */
+        public LocalDeclaration(int slot, ExpressionNode initializer) {
+            super(initializer);
+            this.slot = slot;
+        }
+
+        @Override
+        public void execute(Environment frame) {
+            frame.defineAt(slot, expression == null ? null : expression.execute(frame));
+        }
+    }
+
+    public static final class GlobalDeclaration extends WithExpression {
+        private final Environment globals;
+        private final String name;
+
+        public GlobalDeclaration(Environment globals, String name, ExpressionNode initializer) {
+            super(initializer);
+            this.globals = globals;
+            this.name = name;
+        }
+
+        @Override
+        public void execute(Environment frame) {
+            globals.define(name, expression == null ? null : expression.execute(frame));
+        }
+    }
+
+    public static final class Block extends StatementNode {
+        private final int slots;
+        private final StatementNode[] statements;
+
+        public Block(int slots, StatementNode[] statements) {
+            this.slots = slots;
+            this.statements = statements;
+            for (StatementNode statement : statements) {
+                adopt(statement);
+            }
+        }
+
+        @Override
+        public void execute(Environment frame) {
+            Environment locals = new Environment(frame, slots);
+            for (StatementNode statement : statements) {
+                statement.execute(locals);
+            }
+        }
+    }
+
+    public static final class Sequence extends StatementNode {
+        private final StatementNode[] statements;
+
+        public Sequence(StatementNode[] statements) {
+            this.statements = statements;
+            for (StatementNode statement : statements) {
+                adopt(statement);
+            }
+        }
+
+        @Override
+        public void execute(Environment frame) {
+            for (StatementNode statement : statements) {
+                statement.execute(frame);
+            }
+        }
+    }
+
+    public static final class If extends StatementNode {
+        private ExpressionNode condition;
+        private final StatementNode thenBranch;
+        private final StatementNode elseBranch;
+
+        /**
+         * @param condition
+         * @param thenBranch
+         * @param elseBranch null without else
+         */
+        public If(ExpressionNode condition, StatementNode thenBranch, StatementNode elseBranch) {
+            this.condition = adopt(condition);
+            this.thenBranch = adopt(thenBranch);
+            this.elseBranch = adopt(elseBranch);
+        }
+
+        @Override
+        public void execute(Environment frame) {
+            if (isTruthy(condition.execute(frame))) {
+                thenBranch.execute(frame);
+            } else if (elseBranch != null) {
+                elseBranch.execute(frame);
+            }
+        }
+
+        @Override
+        protected void replaceChild(Node child, Node replacement) {
+            if (child == condition) {
+                condition = (ExpressionNode) replacement;
+            } else {
+                super.replaceChild(child, replacement);
+            }
+        }
+    }
+}
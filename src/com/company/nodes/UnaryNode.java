@@ -0,0 +1,97 @@
+package com.company.nodes;
+
+import com.company.environment.Environment;
+import com.company.interpreter.Values;
+import com.company.tokenizer.Token;
+import com.company.tokenizer.TokenType;
+
+/**
+ * 一元运算节点，和 {@link BinaryNode} 一样在第一次执行时改写自己
+ *
+ * - on a number becomes {@link DoubleNegate} and de-specializes to {@link Generic} when its guard fails,
+ * ! works on every value and becomes {@link Not} right away.
+ */
+public abstract class UnaryNode extends ExpressionNode {
+    protected final Token operator;
+    protected ExpressionNode right;
+
+    UnaryNode(Token operator, ExpressionNode right) {
+        this.operator = operator;
+        this.right = adopt(right);
+    }
+
+    public static UnaryNode create(Token operator, ExpressionNode right) {
+        return new Uninitialized(operator, right);
+    }
+
+    @Override
+    public final Object execute(Environment frame) {
+        return execute(right.execute(frame));
+    }
+
+    protected abstract Object execute(Object value);
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (child == right) {
+            right = (ExpressionNode) replacement;
+        } else {
+            super.replaceChild(child, replacement);
+        }
+    }
+
+    public static final class Uninitialized extends UnaryNode {
+        Uninitialized(Token operator, ExpressionNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        protected Object execute(Object value) {
+            UnaryNode specialized;
+            if (operator.type == TokenType.BANG) {
+                specialized = new Not(operator, right);
+            } else if (operator.type == TokenType.MINUS && value instanceof Double) {
+                specialized = new DoubleNegate(operator, right);
+            } else {
+                specialized = new Generic(operator, right);
+            }
+            return replace(specialized).execute(value);
+        }
+    }
+
+    public static final class Generic extends UnaryNode {
+        Generic(Token operator, ExpressionNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        protected Object execute(Object value) {
+            return Values.unary(operator, value);
+        }
+    }
+
+    public static final class DoubleNegate extends UnaryNode {
+        DoubleNegate(Token operator, ExpressionNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        protected Object execute(Object value) {
+            if (value instanceof Double) {
+                return -(Double) value;
+            }
+            return replace(new Generic(operator, right)).execute(value);
+        }
+    }
+
+    public static final class Not extends UnaryNode {
+        Not(Token operator, ExpressionNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        protected Object execute(Object value) {
+            return !Values.isTruthy(value);
+        }
+    }
+}
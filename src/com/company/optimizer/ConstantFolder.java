@@ -0,0 +1,211 @@
+package com.company.optimizer;
+
+import com.company.syntax.Expression;
+import com.company.syntax.Statement;
+import com.company.tokenizer.TokenType;
+import com.company.utils.Numbers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.company.interpreter.Values.isEqual;
+import static com.company.interpreter.Values.isTruthy;
+
+/**
+ * 常量折叠：在 Parser 和 Interpreter 之间对语法树做一遍化简，只由字面量组成的子表达式在这里算好，运行时不用每次都算
+ *
+ * <ul>
+ *     <li>Unary and Binary expressions whose operands fold to literals become a single Literal,
+ *     (60 * 60 * 24) is 86400 and "prefix" + "suffix" is "prefixsuffix"</li>
+ *     <li>Grouping only steers the parser, it is removed everywhere</li>
+ *     <li>an if with a constant condition is replaced by the branch that runs, or removed</li>
+ *     <li>an expression statement that folds to a literal does nothing and is removed</li>
+ * </ul>
+ *
+ * Values are computed with the interpreter's own rules (see {@link com.company.interpreter.Values}).
+ * An operation the interpreter would fail on, like -"a" or 1 + "a", is left alone so it still fails at run time.
+ * Identities like x * 1 or x + 0 are not applied: they do not hold when x turns out to be a string.
+ *
+ * Subtrees without anything to fold are returned as they are, the pass only allocates along changed paths.
+ */
+public class ConstantFolder implements Expression.Visitor<Expression>, Statement.Visitor<Statement> {
+
+    /**
+     * @param statements
+     * @return the folded program, statements without any effect are left out
+     */
+    public List<Statement> fold(List<Statement> statements) {
+        List<Statement> folded = new ArrayList<>(statements.size());
+        for (Statement statement : statements) {
+            Statement result = fold(statement);
+            if (result != null) {
+                folded.add(result);
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * @param statement
+     * @return the folded statement, or null if it has no effect
+     */
+    public Statement fold(Statement statement) {
+        return Statement.dispatch(statement, this);
+    }
+
+    public Expression fold(Expression expression) {
+        return Expression.dispatch(expression, this);
+    }
+
+    @Override
+    public Expression visitAssignExpression(Expression.Assign expression) {
+        Expression value = fold(expression.value);
+        return value == expression.value ? expression : new Expression.Assign(expression.name, value);
+    }
+
+    @Override
+    public Expression visitBinaryExpression(Expression.Binary expression) {
+        Expression left = fold(expression.left);
+        Expression right = fold(expression.right);
+        if (left instanceof Expression.Literal && right instanceof Expression.Literal) {
+            Expression literal = fold(expression.operator.type, ((Expression.Literal) left).value, ((Expression.Literal) right).value);
+            if (literal != null) {
+                return literal;
+            }
+        }
+        if (left == expression.left && right == expression.right) {
+            return expression;
+        }
+        return new Expression.Binary(left, expression.operator, right);
+    }
+
+    /**
+     * Same cases as Interpreter.visitBinaryExpression
+     *
+     * @return the result, or null if the interpreter would not produce a value for these operands
+     */
+    private static Expression fold(TokenType operator, Object left, Object right) {
+        switch (operator) {
+            case EQUAL_EQUAL:
+                return new Expression.Literal(isEqual(left, right));
+            case BANG_EQUAL:
+                return new Expression.Literal(!isEqual(left, right));
+            case PLUS:
+                if (left instanceof String && right instanceof String) {
+                    return new Expression.Literal((String) left + (String) right);
+                }
+                break;
+            default:
+                break;
+        }
+        if (!(left instanceof Double) || !(right instanceof Double)) {
+            return null;
+        }
+        double a = (Double) left;
+        double b = (Double) right;
+        switch (operator) {
+            case PLUS:
+                return number(a + b);
+            case MINUS:
+                return number(a - b);
+            case STAR:
+                return number(a * b);
+            case SLASH:
+                return number(a / b);
+            case GREATER:
+                return new Expression.Literal(a > b);
+            case GREATER_EQUAL:
+                return new Expression.Literal(a >= b);
+            case LESS:
+                return new Expression.Literal(a < b);
+            case LESS_EQUAL:
+                return new Expression.Literal(a <= b);
+            default:
+                return null;
+        }
+    }
+
+    private static Expression number(double value) {
+        return new Expression.Literal(Numbers.box(value));
+    }
+
+    @Override
+    public Expression visitGroupingExpression(Expression.Grouping expression) {
+        return fold(expression.expression);
+    }
+
+    @Override
+    public Expression visitLiteralExpression(Expression.Literal expression) {
+        return expression;
+    }
+
+    @Override
+    public Expression visitUnaryExpression(Expression.Unary expression) {
+        Expression right = fold(expression.right);
+        if (right instanceof Expression.Literal) {
+            Object value = ((Expression.Literal) right).value;
+            if (expression.operator.type == TokenType.BANG) {
+                return new Expression.Literal(!isTruthy(value));
+            }
+            if (expression.operator.type == TokenType.MINUS && value instanceof Double) {
+                return number(-(Double) value);
+            }
+        }
+        return right == expression.right ? expression : new Expression.Unary(expression.operator, right);
+    }
+
+    @Override
+    public Expression visitVariableExpression(Expression.Variable expression) {
+        return expression;
+    }
+
+    @Override
+    public Statement visitExpressionStatement(Statement.ExprStatement statement) {
+        Expression expression = fold(statement.expr);
+        if (expression instanceof Expression.Literal) {
+            return null;
+        }
+        return expression == statement.expr ? statement : new Statement.ExprStatement(expression);
+    }
+
+    @Override
+    public Statement visitPrintStatement(Statement.PrintStatement statement) {
+        Expression expression = fold(statement.expr);
+        return expression == statement.expr ? statement : new Statement.PrintStatement(expression);
+    }
+
+    @Override
+    public Statement visitVarDeclaration(Statement.VarDeclaration statement) {
+        if (statement.expression == null) {
+            return statement;
+        }
+        Expression initializer = fold(statement.expression);
+        return initializer == statement.expression ? statement : new Statement.VarDeclaration(statement.name, initializer);
+    }
+
+    @Override
+    public Statement visitBlockStatement(Statement.BlockStatement statement) {
+        List<Statement> statements = fold(statement.statements);
+        // the block keeps its own scope even if it is empty now
+        return statements.equals(statement.statements) ? statement : new Statement.BlockStatement(statements);
+    }
+
+    @Override
+    public Statement visitIfStatement(Statement.IfStatement statement) {
+        Expression condition = fold(statement.condition);
+        if (condition instanceof Expression.Literal) {
+            Statement branch = isTruthy(((Expression.Literal) condition).value) ? statement.thenBranch : statement.elseBranch;
+            return branch == null ? null : fold(branch);
+        }
+        Statement thenBranch = fold(statement.thenBranch);
+        if (thenBranch == null) {
+            thenBranch = new Statement.BlockStatement(Collections.emptyList());
+        }
+        Statement elseBranch = statement.elseBranch == null ? null : fold(statement.elseBranch);
+        if (condition == statement.condition && thenBranch == statement.thenBranch && elseBranch == statement.elseBranch) {
+            return statement;
+        }
+        return new Statement.IfStatement(condition, thenBranch, elseBranch);
+    }
+}
@@ -0,0 +1,84 @@
+package com.company.optimizer;
+
+import com.company.syntax.Expression;
+import com.company.syntax.Statement;
+
+import java.util.List;
+
+/**
+ * Counts the expression and statement nodes of a program, to report what a pass did
+ */
+public class NodeCounter implements Expression.Visitor<Integer>, Statement.Visitor<Integer> {
+    private static final NodeCounter INSTANCE = new NodeCounter();
+
+    public static int count(List<Statement> statements) {
+        int count = 0;
+        for (Statement statement : statements) {
+            count += INSTANCE.count(statement);
+        }
+        return count;
+    }
+
+    private int count(Statement statement) {
+        return statement == null ? 0 : Statement.dispatch(statement, this);
+    }
+
+    private int count(Expression expression) {
+        return expression == null ? 0 : Expression.dispatch(expression, this);
+    }
+
+    @Override
+    public Integer visitAssignExpression(Expression.Assign expression) {
+        return 1 + count(expression.value);
+    }
+
+    @Override
+    public Integer visitBinaryExpression(Expression.Binary expression) {
+        return 1 + count(expression.left) + count(expression.right);
+    }
+
+    @Override
+    public Integer visitGroupingExpression(Expression.Grouping expression) {
+        return 1 + count(expression.expression);
+    }
+
+    @Override
+    public Integer visitLiteralExpression(Expression.Literal expression) {
+        return 1;
+    }
+
+    @Override
+    public Integer visitUnaryExpression(Expression.Unary expression) {
+        return 1 + count(expression.right);
+    }
+
+    @Override
+    public Integer visitVariableExpression(Expression.Variable expression) {
+        return 1;
+    }
+
+    @Override
+    public Integer visitExpressionStatement(Statement.ExprStatement statement) {
+        return 1 + count(statement.expr);
+    }
+
+    @Override
+    public Integer visitPrintStatement(Statement.PrintStatement statement) {
+        return 1 + count(statement.expr);
+    }
+
+    @Override
+    public Integer visitVarDeclaration(Statement.VarDeclaration statement) {
+        return 1 + count(statement.expression);
+    }
+
+    @Override
+    public Integer visitBlockStatement(Statement.BlockStatement statement) {
+        return 1 + count(statement.statements);
+    }
+
+    @Override
+    public Integer visitIfStatement(Statement.IfStatement statement) {
+        return 1 + count(statement.condition) + count(statement.thenBranch) + count(statement.elseBranch);
+    }
+}
@@ -0,0 +1,156 @@
+package com.company.output;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 批量输出：每一行先按 UTF-8 编码进一个大的 ByteBuffer，缓冲区满了或者到了刷新时间才写一次 channel
+ *
+ * The flush policy:
+ * <ul>
+ *     <li>size: the buffer is written when the next line does not fit</li>
+ *     <li>time: with an interval, a println that comes at least that long after the last write flushes,
+ *     so a slow script still shows progress. It is checked on println, there is no background thread</li>
+ *     <li>on exit: {@link #flushOnExit()} adds a shutdown hook that writes what is left,
+ *     otherwise the owner calls {@link #flush()} when it is done</li>
+ * </ul>
+ *
+ * ASCII lines are copied into the buffer byte by byte, other lines go through a CharsetEncoder.
+ * An IOException from the channel is thrown as an UncheckedIOException.
+ *
+ * println and flush are synchronized: the shutdown hook flushes from its own thread, possibly while the program
+ * (on SIGINT or SIGTERM) is still in the middle of a println. The lock is uncontended otherwise.
+ */
+public final class BufferedSink implements OutputSink {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    // the longest UTF-8 sequence (4 bytes) and the line separator have to fit into an empty buffer
+    public static final int MIN_BUFFER_SIZE = 16;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    // like PrintStream, a lone surrogate is written as '?'
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final long intervalNanos;
+    private long lastWrite = System.nanoTime();
+
+    /**
+     * @param channel
+     * @param bufferSize in bytes, at least MIN_BUFFER_SIZE
+     * @param intervalMillis 0 to only flush when the buffer is full or on {@link #flush()}
+     * @throws IllegalArgumentException if the buffer is too small or the interval negative
+     */
+    public BufferedSink(WritableByteChannel channel, int bufferSize, long intervalMillis) {
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer size " + bufferSize + " is below " + MIN_BUFFER_SIZE);
+        }
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Negative flush interval " + intervalMillis);
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.intervalNanos = intervalMillis * 1_000_000;
+    }
+
+    /**
+     * A sink on the process's standard output, next to System.out (which it does not flush)
+     */
+    public static BufferedSink stdout(int bufferSize, long intervalMillis) {
+        return new BufferedSink(new FileOutputStream(FileDescriptor.out).getChannel(), bufferSize, intervalMillis);
+    }
+
+    /**
+     * Writes what is left in the buffer when the JVM exits, also on System.exit
+     *
+     * @return this
+     */
+    public BufferedSink flushOnExit() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "output-flush"));
+        return this;
+    }
+
+    @Override
+    public synchronized void println(String line) {
+        if (!putAscii(line)) {
+            putEncoded(line);
+        }
+        put(LINE_SEPARATOR);
+        if (intervalNanos > 0 && System.nanoTime() - lastWrite >= intervalNanos) {
+            flush();
+        }
+    }
+
+    /**
+     * @return false if the line has a non-ASCII char, nothing was written then
+     */
+    private boolean putAscii(String line) {
+        int length = line.length();
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        int start = 0;
+        while (start < length) {
+            if (!buffer.hasRemaining()) {
+                write();
+            }
+            int end = Math.min(length, start + buffer.remaining());
+            for (int i = start; i < end; i++) {
+                buffer.put((byte) line.charAt(i));
+            }
+            start = end;
+        }
+        return true;
+    }
+
+    private void putEncoded(String line) {
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            write();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            write();
+        }
+    }
+
+    private void put(byte[] bytes) {
+        if (buffer.remaining() < bytes.length) {
+            write();
+        }
+        buffer.put(bytes);
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (buffer.position() > 0) {
+            write();
+        }
+    }
+
+    private void write() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+        lastWrite = System.nanoTime();
+    }
+}
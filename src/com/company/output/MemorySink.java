@@ -0,0 +1,40 @@
+package com.company.output;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the printed lines in memory
+ */
+public final class MemorySink implements OutputSink {
+    private final List<String> lines = new ArrayList<>();
+
+    @Override
+    public void println(String line) {
+        lines.add(line);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+
+    public void clear() {
+        lines.clear();
+    }
+
+    /**
+     * @return the output as print would have written it, every line followed by "\n"
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (String line : lines) {
+            builder.append(line).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,25 @@
+package com.company.output;
+
+/**
+ * Where print statements write their lines
+ *
+ * <ul>
+ *     <li>{@link StdoutSink}: System.out.println for every line, what the backends did before</li>
+ *     <li>{@link BufferedSink}: UTF-8 into a large buffer that is written to a channel in one go</li>
+ *     <li>{@link MemorySink}: keeps the text, for embedding and tests</li>
+ * </ul>
+ *
+ * A sink is used by one thread, except that a BufferedSink may also be flushed by its shutdown hook.
+ */
+public interface OutputSink {
+
+    /**
+     * @param line without the line separator
+     */
+    void println(String line);
+
+    /**
+     * Writes out anything that is still buffered
+     */
+    void flush();
+}
@@ -0,0 +1,22 @@
+package com.company.output;
+
+/**
+ * Prints every line with System.out.println: synchronized, and flushed on every line when stdout is autoflushing.
+ * System.out is looked up on every line, so System.setOut still redirects the output.
+ */
+public final class StdoutSink implements OutputSink {
+    public static final StdoutSink INSTANCE = new StdoutSink();
+
+    private StdoutSink() {
+    }
+
+    @Override
+    public void println(String line) {
+        System.out.println(line);
+    }
+
+    @Override
+    public void flush() {
+        System.out.flush();
+    }
+}
@@ -0,0 +1,39 @@
+package com.company.parser;
+
+/**
+ * A syntax error found by the {@link Parser}, the parser keeps going after it so one parse reports all of them
+ */
+public class Diagnostic {
+    private final int line;
+    // the lexeme of the offending token, null when the error is at the end of input
+    private final String lexeme;
+    private final String message;
+
+    public Diagnostic(int line, String lexeme, String message) {
+        this.line = line;
+        this.lexeme = lexeme;
+        this.message = message;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getLexeme() {
+        return lexeme;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isAtEnd() {
+        return lexeme == null;
+    }
+
+    @Override
+    public String toString() {
+        String where = lexeme == null ? " at end" : " at '" + lexeme + "'";
+        return "[line " + line + "] Error" + where + ": " + message;
+    }
+}
@@ -0,0 +1,274 @@
+package com.company.parser;
+
+import com.company.syntax.Statement;
+import com.company.tokenizer.Scanner;
+import com.company.tokenizer.Token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the parsed top-level declarations of an edited document up to date.
+ *
+ * For every top-level declaration we remember the source range of its tokens. On an edit only the text from
+ * the declaration in front of the edit is lexed again, and lexing stops as soon as a token starts exactly where
+ * the first token of an old declaration after the edit now is: from there on the characters are unchanged,
+ * so the tokens and the declarations are too. Only the declarations in between are parsed again,
+ * every other {@link Statement} subtree is reused as is.
+ *
+ * Tokens of reused declarations keep the line they were scanned with, when lines are added or removed above
+ * them the difference is tracked per declaration, see {@link #getLineShift(int)}.
+ */
+public class IncrementalParser {
+    private char[] source;
+    private int length;
+
+    // top-level declarations, the source range [start, end) of their tokens and the line they start on
+    private Statement[] statements = new Statement[0];
+    private int[] starts = new int[0];
+    private int[] ends = new int[0];
+    private int[] lines = new int[0];
+    private int[] lineShifts = new int[0];
+    private int count;
+
+    public IncrementalParser(String source) {
+        this.source = source.toCharArray();
+        this.length = this.source.length;
+        reparse(0, 0, 0, 0);
+    }
+
+    public String getSource() {
+        return new String(source, 0, length);
+    }
+
+    /**
+     * @return the top-level declarations, null entries are declarations with syntax errors
+     */
+    public List<Statement> getStatements() {
+        return new ArrayList<>(Arrays.asList(statements).subList(0, count));
+    }
+
+    /**
+     * @return how many lines the tokens of the declaration moved down since they were scanned
+     */
+    public int getLineShift(int declaration) {
+        return lineShifts[declaration];
+    }
+
+    /**
+     * Replaces source[offset, offset + removed) with inserted and brings the declarations up to date
+     *
+     * @param offset
+     * @param removed
+     * @param inserted
+     */
+    public void edit(int offset, int removed, String inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > length) {
+            throw new IndexOutOfBoundsException("edit [" + offset + ", " + (offset + removed) + ") of " + length);
+        }
+        int delta = inserted.length() - removed;
+        int lineDelta = countNewlines(inserted.toCharArray(), 0, inserted.length()) - countNewlines(source, offset, offset + removed);
+        splice(offset, removed, inserted);
+
+        // the first declaration touched by the edit, and the one in front of it because the edit may join
+        // its last token with the next one
+        int first = Math.max(0, firstEndingAtOrAfter(offset) - 1);
+        // declarations starting after the removed text survive if their first token shows up again
+        int survivors = first;
+        while (survivors < count && starts[survivors] <= offset + removed) {
+            survivors++;
+        }
+        reparse(first, survivors, delta, lineDelta);
+    }
+
+    /**
+     * Lexes from declaration first until the first token of a surviving declaration (shifted by delta) is found,
+     * parses the tokens in between and splices the result in place of the old declarations.
+     */
+    private void reparse(int first, int survivors, int delta, int lineDelta) {
+        int restart = first == 0 ? 0 : starts[first];
+        int restartLine = first == 0 ? 1 : lines[first] + lineShifts[first];
+        Scanner scanner = new Scanner(source, restart, length, restartLine);
+
+        Region region = new Region();
+        int resync = survivors;
+        // boundaries to lex through before trying to resync again, doubles every time a boundary does not hold
+        int skip = 0;
+        int step = 1;
+        Token token = scanner.nextToken();
+        while (true) {
+            while (token != null) {
+                int tokenStart = scanner.getTokenStart();
+                while (resync < count && starts[resync] + delta < tokenStart) {
+                    resync++;
+                }
+                if (resync < count && starts[resync] + delta == tokenStart) {
+                    if (skip == 0) {
+                        break;
+                    }
+                    skip--;
+                    resync++;
+                }
+                region.add(token, tokenStart, scanner.getTokenEnd(), scanner.getTokenStartLine());
+                token = scanner.nextToken();
+            }
+            if (token == null) {
+                resync = count;
+            }
+            region.parse();
+            // a broken declaration at either side of the boundary may really continue across it (an unclosed block
+            // swallows everything after it), keep going
+            if (resync == count || (!region.endsWithError() && statements[resync] != null)) {
+                break;
+            }
+            region.add(token, scanner.getTokenStart(), scanner.getTokenEnd(), scanner.getTokenStartLine());
+            token = scanner.nextToken();
+            resync++;
+            skip = step - 1;
+            step *= 2;
+        }
+        splice(first, resync, region, delta, lineDelta);
+    }
+
+    private void splice(int first, int resync, Region region, int delta, int lineDelta) {
+        int survivors = count - resync;
+        int newCount = first + region.count + survivors;
+        Statement[] newStatements = new Statement[newCount];
+        int[] newStarts = new int[newCount];
+        int[] newEnds = new int[newCount];
+        int[] newLines = new int[newCount];
+        int[] newLineShifts = new int[newCount];
+
+        System.arraycopy(statements, 0, newStatements, 0, first);
+        System.arraycopy(starts, 0, newStarts, 0, first);
+        System.arraycopy(ends, 0, newEnds, 0, first);
+        System.arraycopy(lines, 0, newLines, 0, first);
+        System.arraycopy(lineShifts, 0, newLineShifts, 0, first);
+
+        int at = first;
+        for (int i = 0; i < region.count; i++, at++) {
+            newStatements[at] = region.statements.get(i);
+            newStarts[at] = region.declarationStarts[i];
+            newEnds[at] = region.declarationEnds[i];
+            newLines[at] = region.declarationLines[i];
+        }
+
+        System.arraycopy(statements, resync, newStatements, at, survivors);
+        System.arraycopy(lines, resync, newLines, at, survivors);
+        for (int i = 0; i < survivors; i++, at++) {
+            newStarts[at] = starts[resync + i] + delta;
+            newEnds[at] = ends[resync + i] + delta;
+            newLineShifts[at] = lineShifts[resync + i] + lineDelta;
+        }
+
+        statements = newStatements;
+        starts = newStarts;
+        ends = newEnds;
+        lines = newLines;
+        lineShifts = newLineShifts;
+        count = newCount;
+    }
+
+    private void splice(int offset, int removed, String inserted) {
+        int newLength = length - removed + inserted.length();
+        if (newLength > source.length) {
+            source = Arrays.copyOf(source, Math.max(newLength, source.length * 2));
+        }
+        System.arraycopy(source, offset + removed, source, offset + inserted.length(), length - offset - removed);
+        inserted.getChars(0, inserted.length(), source, offset);
+        length = newLength;
+    }
+
+    private int firstEndingAtOrAfter(int offset) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int countNewlines(char[] chars, int from, int to) {
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (chars[i] == '\n') lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * The re-lexed tokens and the declarations parsed from them
+     */
+    private static class Region {
+        final List<Token> tokens = new ArrayList<>();
+        int[] tokenStarts = new int[16];
+        int[] tokenEnds = new int[16];
+        int[] tokenLines = new int[16];
+
+        final List<Statement> statements = new ArrayList<>();
+        int[] declarationStarts = new int[16];
+        int[] declarationEnds = new int[16];
+        int[] declarationLines = new int[16];
+        int count;
+
+        void add(Token token, int start, int end, int line) {
+            int index = tokens.size();
+            if (index == tokenStarts.length) {
+                tokenStarts = Arrays.copyOf(tokenStarts, index * 2);
+                tokenEnds = Arrays.copyOf(tokenEnds, index * 2);
+                tokenLines = Arrays.copyOf(tokenLines, index * 2);
+            }
+            tokens.add(token);
+            tokenStarts[index] = start;
+            tokenEnds[index] = end;
+            tokenLines[index] = line;
+        }
+
+        void parse() {
+            statements.clear();
+            count = 0;
+            int index = 0;
+            while (index < tokens.size()) {
+                Parser parser = new Parser(tokens.subList(index, tokens.size()));
+                while (!parser.atEnd()) {
+                    int before = parser.position();
+                    Statement statement = parser.parseDeclaration();
+                    int consumed = parser.position() - before;
+                    if (consumed == 0) {
+                        break;
+                    }
+                    declare(statement, index, index + consumed);
+                    index += consumed;
+                }
+                if (index < tokens.size()) {
+                    // the parser is stuck on this token, it becomes a broken declaration of its own
+                    declare(null, index, index + 1);
+                    index++;
+                }
+            }
+        }
+
+        boolean endsWithError() {
+            return count > 0 && statements.get(count - 1) == null;
+        }
+
+        private void declare(Statement statement, int from, int to) {
+            if (count == declarationStarts.length) {
+                declarationStarts = Arrays.copyOf(declarationStarts, count * 2);
+                declarationEnds = Arrays.copyOf(declarationEnds, count * 2);
+                declarationLines = Arrays.copyOf(declarationLines, count * 2);
+            }
+            statements.add(statement);
+            declarationStarts[count] = tokenStarts[from];
+            declarationEnds[count] = tokenEnds[to - 1];
+            declarationLines[count] = tokenLines[from];
+            count++;
+        }
+    }
+}
@@ -3,40 +3,160 @@ package com.company.parser;
 import com.company.syntax.Expression;
 import com.company.syntax.Statement;
 import com.company.tokenizer.Token;
+import com.company.tokenizer.TokenBuffer;
+import com.company.tokenizer.TokenSource;
 import com.company.tokenizer.TokenType;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 
 public class Parser {
-    private static class ParseError extends RuntimeException {}
+    // only unwinds to the enclosing declaration, the message is already recorded as a Diagnostic
+    // so no stack trace is filled in: a broken file may throw thousands of these
+    private static class ParseError extends RuntimeException {
+        ParseError() {
+            super(null, null, false, false);
+        }
+    }
 
-    private final List<Token> tokens;
-    private int current = 0;
+    // 同步点：这些关键字开始一条新的语句，出错后跳到这里继续解析
+    private static final EnumSet<TokenType> STATEMENT_STARTS = EnumSet.of(
+            TokenType.CLASS, TokenType.FUN, TokenType.VAR, TokenType.FOR, TokenType.IF,
+            TokenType.WHILE, TokenType.PRINT, TokenType.RETURN, TokenType.LEFT_BRACE, TokenType.RIGHT_BRACE);
+
+    // 运算符集合预先创建好，匹配时只是一次位运算，不会像 varargs 那样每次调用都分配数组
+    private static final EnumSet<TokenType> UNARY_OPERATORS = EnumSet.of(TokenType.BANG, TokenType.MINUS);
+
+    // 运算符优先级，数值越大结合越紧密；0 表示不是中缀运算符
+    private static final int PRECEDENCE_ASSIGNMENT = 1;
+    private static final int PRECEDENCE_EQUALITY = 2;
+    private static final int PRECEDENCE_COMPARISON = 3;
+    private static final int PRECEDENCE_TERM = 4;
+    private static final int PRECEDENCE_FACTOR = 5;
+
+    // infix precedence of every token type, indexed by ordinal
+    private static final int[] INFIX_PRECEDENCE = new int[TokenType.values().length];
+
+    static {
+        INFIX_PRECEDENCE[TokenType.EQUAL.ordinal()] = PRECEDENCE_ASSIGNMENT;
+        INFIX_PRECEDENCE[TokenType.EQUAL_EQUAL.ordinal()] = PRECEDENCE_EQUALITY;
+        INFIX_PRECEDENCE[TokenType.BANG_EQUAL.ordinal()] = PRECEDENCE_EQUALITY;
+        INFIX_PRECEDENCE[TokenType.LESS.ordinal()] = PRECEDENCE_COMPARISON;
+        INFIX_PRECEDENCE[TokenType.LESS_EQUAL.ordinal()] = PRECEDENCE_COMPARISON;
+        INFIX_PRECEDENCE[TokenType.GREATER.ordinal()] = PRECEDENCE_COMPARISON;
+        INFIX_PRECEDENCE[TokenType.GREATER_EQUAL.ordinal()] = PRECEDENCE_COMPARISON;
+        INFIX_PRECEDENCE[TokenType.PLUS.ordinal()] = PRECEDENCE_TERM;
+        INFIX_PRECEDENCE[TokenType.MINUS.ordinal()] = PRECEDENCE_TERM;
+        INFIX_PRECEDENCE[TokenType.STAR.ordinal()] = PRECEDENCE_FACTOR;
+        INFIX_PRECEDENCE[TokenType.SLASH.ordinal()] = PRECEDENCE_FACTOR;
+    }
+
+    // exactly one of source and buffer is set
+    private final TokenSource source;
+    private final TokenBuffer buffer;
+    // the next token eagerly waiting to be parsed, null at the end of input; not used for a buffer
+    private Token current;
+    private Token previous;
+    // number of tokens consumed so far, for a buffer also the index of the current token
+    private int position = 0;
+    // every syntax error found so far, in source order
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
 
     /**
      * Like the scanner, the parser consumes a flat input sequence, only now we're reading tokens instead of character
      *
-     * We store the list of tokens and use current to point the next token eagerly waiting to be parsed
      * @param tokens
      */
     public Parser(List<Token> tokens) {
-        this.tokens = tokens;
+        this(TokenSource.of(tokens));
+    }
+
+    /**
+     * Tokens are pulled from the source one at a time, only the current and the previous token are kept alive
+     * @param source
+     */
+    public Parser(TokenSource source) {
+        this.source = source;
+        this.buffer = null;
+        this.current = source.nextToken();
+    }
+
+    /**
+     * Reads type, line and literal of the tokens by index straight out of the buffer.
+     * A Token object is only created for the tokens the AST keeps (names and operators) and for error messages,
+     * punctuation and keywords are never materialized.
+     *
+     * @param buffer
+     */
+    public Parser(TokenBuffer buffer) {
+        this.source = null;
+        this.buffer = buffer;
     }
 
     /**
      * program: declaration* EOF ;
      *
+     * Parsing does not stop at the first syntax error, declarations with errors are left out
+     * and reported through {@link #getDiagnostics()}.
+     *
      * @return
      */
     public List<Statement> parser() {
         List<Statement> statements = new ArrayList<>();
         while (!isAtEnd()) {
-            statements.add(declaration());
+            Statement statement = declaration();
+            if (statement != null) {
+                statements.add(statement);
+            }
         }
         return statements;
     }
 
+    /**
+     * @return the syntax errors found so far, in source order
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public boolean hadError() {
+        return !diagnostics.isEmpty();
+    }
+
+    /**
+     * Parses the next top-level declaration only, so a program can run while it is still being parsed
+     * and each statement can be dropped once it has been executed.
+     *
+     * @return the next statement, or null at the end of input; declarations with syntax errors are skipped
+     */
+    public Statement nextStatement() {
+        while (!isAtEnd()) {
+            Statement statement = declaration();
+            if (statement != null) {
+                return statement;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses a single top-level declaration, used by {@link IncrementalParser}
+     *
+     * @return the declaration, or null if it has a syntax error
+     */
+    Statement parseDeclaration() {
+        return declaration();
+    }
+
+    int position() {
+        return position;
+    }
+
+    boolean atEnd() {
+        return isAtEnd();
+    }
+
     /**
      * declaration: varDeclaration | statement
      *
@@ -46,22 +166,49 @@ public class Parser {
      * @return
      */
     private Statement declaration() {
+        int start = position;
         try {
             if (advanceIfMatch(TokenType.VAR)) {
                 return varDeclaration();
             }
             return statement();
         } catch ( ParseError error) {
-//            synchronize();
+            synchronize(start);
             return null;
         }
     }
 
+    /**
+     * Panic mode: discards tokens until the next statement boundary, so the errors after it are still reported
+     * and the ones caused by the broken statement are not.
+     * A boundary is just past a ';' or in front of a token that starts a statement, a '}' ends the enclosing block.
+     *
+     * @param start the position the broken declaration started at
+     */
+    private void synchronize(int start) {
+        // always make progress, otherwise the same token fails again and again
+        if (position == start) {
+            advance();
+        }
+        while (!isAtEnd()) {
+            if (previousType() == TokenType.SEMICOLON) {
+                return;
+            }
+            if (STATEMENT_STARTS.contains(peekType())) {
+                return;
+            }
+            advance();
+        }
+    }
+
     /**
      * statement: exprStatement | ifStatement | printStatement | blockStatement
      * @return
      */
     private Statement statement() {
+        if (advanceIfMatch(TokenType.IF)) {
+            return ifStatement();
+        }
         if (advanceIfMatch(TokenType.PRINT)) {
             return printStatement();
         }
@@ -77,12 +224,18 @@ public class Parser {
      */
     private Statement expressionStatement() {
         Expression expression = expression();
-        consume(TokenType.SEMICOLON, "Expect ';' after value.");
+        consume(TokenType.SEMICOLON, "Expect ';' after expression.");
         return new Statement.ExprStatement(expression);
     }
 
+    /**
+     * ifStatement: "if" "(" expression ")" statement ( "else" statement )?
+     *
+     * A dangling else binds to the nearest if
+     * @return
+     */
     private Statement ifStatement() {
-        consume(TokenType.LEFT_PAREN, "Expect '(' after 'if'");
+        consume(TokenType.LEFT_PAREN, "Expect '(' after 'if'.");
         Expression condition = expression();
         consume(TokenType.RIGHT_PAREN, "Expect ')' after 'if' condition.");
 
@@ -111,9 +264,12 @@ public class Parser {
     private Statement blockStatement() {
         List<Statement> statements = new ArrayList<>();
         while (!check(TokenType.RIGHT_BRACE) && !isAtEnd()) {
-            statements.add(declaration());
+            Statement statement = declaration();
+            if (statement != null) {
+                statements.add(statement);
+            }
         }
-        consume(TokenType.RIGHT_BRACE, "Expect '}' after block");
+        consume(TokenType.RIGHT_BRACE, "Expect '}' after block.");
         return new Statement.BlockStatement(statements);
     }
 
@@ -122,13 +278,14 @@ public class Parser {
      * @return
      */
     private Statement varDeclaration() {
-        Token name = consume(TokenType.IDENTIFIER, "Expect variable name.");
+        consume(TokenType.IDENTIFIER, "Expect variable name.");
+        Token name = previous();
         Expression initial = null;
         // matched the =
         if (advanceIfMatch(TokenType.EQUAL)) {
             initial = expression();
         }
-        consume(TokenType.SEMICOLON, "Except ';' after variable declaration.");
+        consume(TokenType.SEMICOLON, "Expect ';' after variable declaration.");
         return new Statement.VarDeclaration(name, initial);
     }
 
@@ -137,101 +294,65 @@ public class Parser {
      * @return
      */
     private Expression expression() {
-        return assignment();
+        return expression(PRECEDENCE_ASSIGNMENT);
     }
 
-
     /**
+     * Precedence climbing (Pratt) parser for all operator levels
+     *
      * assignment: IDENTIFIER "=" assignment | equality
-     * 上面的语义表示赋值表达式要么是一个
-     * 1. 标识符后面跟一个=在跟一个值或者表达式
-     * 2. 判等表达式
-     * @return
-     */
-    private Expression assignment() {
-        Expression expr = equality();
-        if (advanceIfMatch(TokenType.EQUAL)) {
-            Token equals = previous();
-            Expression value = assignment();
-            if (expr instanceof Expression.Variable) {
-                Token name = ((Expression.Variable)expr).getName();
-                return new Expression.Assign(name, value);
-            }
-            error(equals, "Invalid assignment target");
-        }
-        return expr;
-    }
-
-
-    /**
      * equality: comparison ( ("!=" | "==") comparison )*
-     * equality is left associative
-     * a == b == c == e
-     * 当解析到 (a == b )== c 时，a == b 是作为 第二个 == 的左子树
-     * 这样可以确保他们的左结合性
-     * @return
-     */
-    private Expression equality() {
-        Expression expression = comparison();
-        while (advanceIfMatch(TokenType.EQUAL_EQUAL, TokenType.BANG_EQUAL)) {
-            Token operator = previous();
-            Expression right = comparison();
-            expression = new Expression.Binary(expression, operator, right);
-        }
-        return expression;
-    }
-
-    /**
      * comparison: term ( (">=" | "<=" | "<" | ">">) term )*
-     * @return
-     */
-    private Expression comparison() {
-        Expression left = term();
-        while (advanceIfMatch(TokenType.LESS_EQUAL, TokenType.LESS, TokenType.GREATER, TokenType.GREATER_EQUAL)) {
-            Token operator = previous();
-            Expression right = term();
-            left = new Expression.Binary(left, operator, right);
-        }
-        return left;
-    }
-
-    /**
      * term: factor (("+" | "-") factor)*
-     * @return
-     */
-    private Expression term() {
-        Expression left = factor();
-        while (advanceIfMatch(TokenType.PLUS, TokenType.MINUS)) {
-            Token operator = previous();
-            Expression right = factor();
-            left = new Expression.Binary(left, operator, right);
-        }
-        return left;
-    }
-
-    /**
      * factor: unary (("*" |"/") unary)*
+     * unary: ("!" | "-") unary | primary
+     *
+     * Instead of one method per level, the operand is parsed once and then infix operators are folded in for as
+     * long as they bind at least as tight as minPrecedence (looked up in INFIX_PRECEDENCE).
+     * Binary operators are left associative: the right operand only takes operators binding tighter,
+     * so a == b == c becomes (a == b) == c.
+     * Assignment is right associative: its value is parsed at the assignment level again, a = b = c is a = (b = c).
+     * A leaf costs expression -> expression(int) -> unary -> primary instead of seven frames.
+     *
+     * @param minPrecedence
      * @return
      */
-    private Expression factor() {
+    private Expression expression(int minPrecedence) {
         Expression left = unary();
-        while (advanceIfMatch(TokenType.STAR, TokenType.SLASH)) {
+
+        while (!isAtEnd()) {
+            int precedence = INFIX_PRECEDENCE[peekType().ordinal()];
+            if (precedence < minPrecedence) {
+                break;
+            }
+            advance();
             Token operator = previous();
-            Expression right = unary();
-            left = new Expression.Binary(left, operator, right);
+            if (operator.type == TokenType.EQUAL) {
+                Expression value = expression(PRECEDENCE_ASSIGNMENT);
+                if (left instanceof Expression.Variable) {
+                    Token name = ((Expression.Variable) left).getName();
+                    left = new Expression.Assign(name, value);
+                } else {
+                    error(operator, "Invalid assignment target.");
+                }
+            } else {
+                Expression right = expression(precedence + 1);
+                left = new Expression.Binary(left, operator, right);
+            }
         }
         return left;
     }
 
     /**
      * unary: ("!" | "-") unary | primary
+     *
+     * Nothing binds tighter than a prefix operator, so its operand is just another unary
      * @return
      */
     private Expression unary() {
-        if (advanceIfMatch(TokenType.BANG, TokenType.MINUS)) {
+        if (advanceIfMatch(UNARY_OPERATORS)) {
             Token operator = previous();
-            Expression unary = unary();
-            return new Expression.Unary(operator, unary);
+            return new Expression.Unary(operator, unary());
         }
         return primary();
     }
@@ -242,61 +363,135 @@ public class Parser {
      * @return
      */
     private Expression primary() {
-        if (advanceIfMatch(TokenType.TRUE)) return new Expression.Literal(true);
-        if (advanceIfMatch(TokenType.FALSE)) return new Expression.Literal(false);
-        if (advanceIfMatch(TokenType.NIL)) return new Expression.Literal(null);
-        if (advanceIfMatch(TokenType.NUMBER, TokenType.STRING)) {
-            return new Expression.Literal(previous().literal);
+        if (isAtEnd()) {
+            throw error(peek(), "Expect expression.");
         }
-        if (advanceIfMatch(TokenType.IDENTIFIER)) {
-            return new Expression.Variable(previous());
+        switch (peekType()) {
+            case TRUE:
+                advance();
+                return new Expression.Literal(true);
+            case FALSE:
+                advance();
+                return new Expression.Literal(false);
+            case NIL:
+                advance();
+                return new Expression.Literal(null);
+            case NUMBER:
+            case STRING:
+                advance();
+                return new Expression.Literal(previousLiteral());
+            case IDENTIFIER:
+                advance();
+                return new Expression.Variable(previous());
+            case LEFT_PAREN: {
+                advance();
+                Expression expression = expression();
+                consume(TokenType.RIGHT_PAREN, "Expect ')' after expression.");
+                return new Expression.Grouping(expression);
+            }
+            default:
+                throw error(peek(), "Expect expression.");
         }
-        if (advanceIfMatch(TokenType.LEFT_PAREN)) {
-            Expression expression = expression();
-            // TODO(weiguoliang) consume )
-            return new Expression.Grouping(expression);
+    }
+
+    /**
+     * Advance the token if it matches the type
+     * @param tokenType
+     * @return
+     */
+    private boolean advanceIfMatch(TokenType tokenType) {
+        if (check(tokenType)) {
+            advance();
+            return true;
         }
-        throw error(peek(), "Expect expression.");
+        return false;
     }
 
     /**
-     * Advance the token if it matches the types
+     * Advance the token if it matches one of the types
      * @param tokenTypes
      * @return
      */
-    private boolean advanceIfMatch(TokenType... tokenTypes) {
-        for (TokenType type: tokenTypes) {
-            if (check(type)) {
-                advance();
-                return true;
-            }
+    private boolean advanceIfMatch(EnumSet<TokenType> tokenTypes) {
+        if (!isAtEnd() && tokenTypes.contains(peekType())) {
+            advance();
+            return true;
         }
         return false;
     }
 
-    private Token consume(TokenType type, String message) {
-        if (check(type)) return advance();
-        throw error(peek(), message);
+    private void consume(TokenType type, String message) {
+        if (!check(type)) {
+            throw error(peek(), message);
+        }
+        advance();
     }
 
+    /**
+     * Records a diagnostic at token (null is the end of input).
+     * The caller decides whether to throw the returned error or to keep parsing
+     *
+     * @param token
+     * @param message
+     * @return
+     */
     private ParseError error(Token token, String message) {
-//        Lox.error(token, message);
+        if (token == null) {
+            diagnostics.add(new Diagnostic(position == 0 ? 1 : previousLine(), null, message));
+        } else {
+            diagnostics.add(new Diagnostic(token.line, token.lexeme, message));
+        }
         return new ParseError();
     }
 
     private boolean check(TokenType type) {
         if (isAtEnd()) return false;
-        return peek().type == type;
+        return peekType() == type;
     }
 
-    private Token advance() {
-        if (!isAtEnd()) current++;
-        return previous();
+    private void advance() {
+        if (!isAtEnd()) {
+            if (buffer == null) {
+                previous = current;
+                current = source.nextToken();
+            }
+            position++;
+        }
+    }
+
+    private boolean isAtEnd() {
+        return buffer == null ? current == null : position == buffer.size();
+    }
+
+    // the accessors below read a buffer by index, the ones returning a Token materialize it
+
+    private TokenType peekType() {
+        return buffer == null ? current.type : buffer.type(position);
+    }
+
+    private TokenType previousType() {
+        return buffer == null ? previous.type : buffer.type(position - 1);
     }
 
-    private boolean isAtEnd() { return current == tokens.size();}
+    private int previousLine() {
+        return buffer == null ? previous.line : buffer.line(position - 1);
+    }
+
+    private Object previousLiteral() {
+        return buffer == null ? previous.literal : buffer.literal(position - 1);
+    }
 
-    private Token peek() { return tokens.get(current); }
+    /**
+     * @return the current token, null at the end of input
+     */
+    private Token peek() {
+        if (buffer == null || isAtEnd()) {
+            return current;
+        }
+        return buffer.token(position);
+    }
 
-    private Token previous() { return tokens.get(current - 1);}
+    private Token previous() {
+        return buffer == null ? previous : buffer.token(position - 1);
+    }
 }
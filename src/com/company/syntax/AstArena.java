@@ -0,0 +1,418 @@
+package com.company.syntax;
+
+import com.company.tokenizer.Token;
+import com.company.tokenizer.TokenType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A whole program in a handful of primitive arrays instead of one object per node.
+ *
+ * A node is an int index. Its kind, line and up to three operands live at that index of parallel arrays;
+ * operands are indices of child nodes, of a name in the name pool, of a literal in the constant pool,
+ * or of a run of statements in the list array. Children are added before their parent, so a walk moves
+ * mostly forward through memory. Operators are stored as their TokenType ordinal, the tokens are gone and
+ * only the line is kept.
+ *
+ * <pre>
+ * kind                operand0        operand1        operand2
+ * ASSIGN              name            value
+ * BINARY              left            right           operator
+ * GROUPING            expression
+ * LITERAL             constant
+ * UNARY                               right           operator
+ * VARIABLE            name
+ * EXPRESSION_STATEMENT expression
+ * PRINT_STATEMENT     expression
+ * VAR_DECLARATION     name            initializer or NONE
+ * BLOCK_STATEMENT     first in lists  count
+ * IF_STATEMENT        condition       then branch     else branch or NONE
+ * </pre>
+ *
+ * Use {@link #of(List)} to convert a parsed program and the visitors to walk it, they mirror
+ * {@link Expression.Visitor} and {@link Statement.Visitor} with node indices in place of node objects.
+ */
+public class AstArena {
+    public static final int NONE = -1;
+
+    public static final byte ASSIGN = 0;
+    public static final byte BINARY = 1;
+    public static final byte GROUPING = 2;
+    public static final byte LITERAL = 3;
+    public static final byte UNARY = 4;
+    public static final byte VARIABLE = 5;
+    public static final byte EXPRESSION_STATEMENT = 6;
+    public static final byte PRINT_STATEMENT = 7;
+    public static final byte VAR_DECLARATION = 8;
+    public static final byte BLOCK_STATEMENT = 9;
+    public static final byte IF_STATEMENT = 10;
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    public interface ExpressionVisitor<R> {
+        R visitBinaryExpression(int expression);
+
+        R visitGroupingExpression(int expression);
+
+        R visitLiteralExpression(int expression);
+
+        R visitUnaryExpression(int expression);
+
+        R visitVariableExpression(int expression);
+
+        R visitAssignExpression(int expression);
+    }
+
+    public interface StatementVisitor<R> {
+        R visitExpressionStatement(int statement);
+
+        R visitPrintStatement(int statement);
+
+        R visitVarDeclaration(int declaration);
+
+        R visitBlockStatement(int blockStatement);
+
+        R visitIfStatement(int ifStatement);
+    }
+
+    private byte[] kinds = new byte[64];
+    private int[] lines = new int[64];
+    private int[] operands0 = new int[64];
+    private int[] operands1 = new int[64];
+    private int[] operands2 = new int[64];
+    private int size;
+
+    // statement lists of blocks and of the program, a block points at a run of entries
+    private int[] lists = new int[64];
+    private int listSize;
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIndices = new HashMap<>();
+    private final List<Object> constants = new ArrayList<>();
+
+    // run of the top-level statements in lists
+    private int programStart;
+    private int programCount;
+
+    private AstArena() {
+    }
+
+    /**
+     * Converts a parsed program, the statements are not referenced afterwards
+     *
+     * @param statements
+     * @return
+     */
+    public static AstArena of(List<Statement> statements) {
+        AstArena arena = new AstArena();
+        Converter converter = new Converter(arena);
+        int[] nodes = new int[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = statements.get(i).accept(converter);
+        }
+        arena.programStart = arena.addList(nodes, nodes.length);
+        arena.programCount = nodes.length;
+        arena.trim();
+        return arena;
+    }
+
+    public <R> R accept(int expression, ExpressionVisitor<R> visitor) {
+        switch (kinds[expression]) {
+            case BINARY:
+                return visitor.visitBinaryExpression(expression);
+            case GROUPING:
+                return visitor.visitGroupingExpression(expression);
+            case LITERAL:
+                return visitor.visitLiteralExpression(expression);
+            case UNARY:
+                return visitor.visitUnaryExpression(expression);
+            case VARIABLE:
+                return visitor.visitVariableExpression(expression);
+            case ASSIGN:
+                return visitor.visitAssignExpression(expression);
+            default:
+                throw new IllegalArgumentException("Not an expression: " + expression);
+        }
+    }
+
+    public <R> R accept(int statement, StatementVisitor<R> visitor) {
+        switch (kinds[statement]) {
+            case EXPRESSION_STATEMENT:
+                return visitor.visitExpressionStatement(statement);
+            case PRINT_STATEMENT:
+                return visitor.visitPrintStatement(statement);
+            case VAR_DECLARATION:
+                return visitor.visitVarDeclaration(statement);
+            case BLOCK_STATEMENT:
+                return visitor.visitBlockStatement(statement);
+            case IF_STATEMENT:
+                return visitor.visitIfStatement(statement);
+            default:
+                throw new IllegalArgumentException("Not a statement: " + statement);
+        }
+    }
+
+    /**
+     * @return the number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getStatementCount() {
+        return programCount;
+    }
+
+    /**
+     * @param index
+     * @return the top-level statement at index
+     */
+    public int getStatement(int index) {
+        return lists[programStart + index];
+    }
+
+    public byte getKind(int node) {
+        return kinds[node];
+    }
+
+    public int getLine(int node) {
+        return lines[node];
+    }
+
+    // Binary, Unary
+
+    public TokenType getOperator(int expression) {
+        return TOKEN_TYPES[operands2[expression]];
+    }
+
+    public int getLeft(int binary) {
+        return operands0[binary];
+    }
+
+    /**
+     * @param expression a Binary or a Unary expression
+     * @return
+     */
+    public int getRight(int expression) {
+        return operands1[expression];
+    }
+
+    // Grouping, ExprStatement, PrintStatement
+
+    public int getExpression(int node) {
+        return operands0[node];
+    }
+
+    // Literal
+
+    public Object getLiteral(int literal) {
+        return constants.get(operands0[literal]);
+    }
+
+    // Variable, Assign, VarDeclaration
+
+    public String getName(int node) {
+        return names.get(operands0[node]);
+    }
+
+    public int getValue(int assign) {
+        return operands1[assign];
+    }
+
+    /**
+     * @param declaration
+     * @return the initializer, or NONE
+     */
+    public int getInitializer(int declaration) {
+        return operands1[declaration];
+    }
+
+    // BlockStatement
+
+    public int getStatementCount(int block) {
+        return operands1[block];
+    }
+
+    public int getStatement(int block, int index) {
+        return lists[operands0[block] + index];
+    }
+
+    // IfStatement
+
+    public int getCondition(int ifStatement) {
+        return operands0[ifStatement];
+    }
+
+    public int getThenBranch(int ifStatement) {
+        return operands1[ifStatement];
+    }
+
+    /**
+     * @param ifStatement
+     * @return the else branch, or NONE
+     */
+    public int getElseBranch(int ifStatement) {
+        return operands2[ifStatement];
+    }
+
+    private int add(byte kind, int line, int operand0, int operand1, int operand2) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            operands0 = Arrays.copyOf(operands0, capacity);
+            operands1 = Arrays.copyOf(operands1, capacity);
+            operands2 = Arrays.copyOf(operands2, capacity);
+        }
+        kinds[size] = kind;
+        lines[size] = line;
+        operands0[size] = operand0;
+        operands1[size] = operand1;
+        operands2[size] = operand2;
+        return size++;
+    }
+
+    private int addList(int[] nodes, int count) {
+        if (listSize + count > lists.length) {
+            lists = Arrays.copyOf(lists, Math.max(lists.length * 2, listSize + count));
+        }
+        System.arraycopy(nodes, 0, lists, listSize, count);
+        int start = listSize;
+        listSize += count;
+        return start;
+    }
+
+    private int name(Token name) {
+        Integer index = nameIndices.get(name.lexeme);
+        if (index == null) {
+            index = names.size();
+            names.add(name.lexeme);
+            nameIndices.put(name.lexeme, index);
+        }
+        return index;
+    }
+
+    private int constant(Object value) {
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    private void trim() {
+        kinds = Arrays.copyOf(kinds, size);
+        lines = Arrays.copyOf(lines, size);
+        operands0 = Arrays.copyOf(operands0, size);
+        operands1 = Arrays.copyOf(operands1, size);
+        operands2 = Arrays.copyOf(operands2, size);
+        lists = Arrays.copyOf(lists, listSize);
+        nameIndices.clear();
+    }
+
+    /**
+     * Adds the nodes of a tree bottom-up, every visit returns the index of the node it added
+     */
+    private static class Converter implements Expression.Visitor<Integer>, Statement.Visitor<Integer> {
+        private final AstArena arena;
+        // nodes without a token of their own (Literal, Grouping, most statements) get the line of the
+        // last token converted before them
+        private int line = 1;
+
+        Converter(AstArena arena) {
+            this.arena = arena;
+        }
+
+        private int expression(Expression expression) {
+            return expression == null ? NONE : expression.accept(this);
+        }
+
+        private int statement(Statement statement) {
+            return statement == null ? NONE : statement.accept(this);
+        }
+
+        @Override
+        public Integer visitBinaryExpression(Expression.Binary expression) {
+            int left = expression(expression.getLeft());
+            int right = expression(expression.getRight());
+            Token operator = expression.getOperator();
+            line = operator.line;
+            return arena.add(BINARY, line, left, right, operator.type.ordinal());
+        }
+
+        @Override
+        public Integer visitGroupingExpression(Expression.Grouping expression) {
+            int inner = expression(expression.getExpression());
+            return arena.add(GROUPING, line, inner, NONE, NONE);
+        }
+
+        @Override
+        public Integer visitLiteralExpression(Expression.Literal expression) {
+            return arena.add(LITERAL, line, arena.constant(expression.getValue()), NONE, NONE);
+        }
+
+        @Override
+        public Integer visitUnaryExpression(Expression.Unary expression) {
+            Token operator = expression.getOperator();
+            line = operator.line;
+            int right = expression(expression.getRight());
+            return arena.add(UNARY, operator.line, NONE, right, operator.type.ordinal());
+        }
+
+        @Override
+        public Integer visitVariableExpression(Expression.Variable expression) {
+            Token name = expression.getName();
+            line = name.line;
+            return arena.add(VARIABLE, line, arena.name(name), NONE, NONE);
+        }
+
+        @Override
+        public Integer visitAssignExpression(Expression.Assign expression) {
+            Token name = expression.getName();
+            line = name.line;
+            int value = expression(expression.getValue());
+            return arena.add(ASSIGN, name.line, arena.name(name), value, NONE);
+        }
+
+        @Override
+        public Integer visitExpressionStatement(Statement.ExprStatement statement) {
+            int expression = expression(statement.getExpr());
+            return arena.add(EXPRESSION_STATEMENT, line, expression, NONE, NONE);
+        }
+
+        @Override
+        public Integer visitPrintStatement(Statement.PrintStatement statement) {
+            int expression = expression(statement.getExpr());
+            return arena.add(PRINT_STATEMENT, line, expression, NONE, NONE);
+        }
+
+        @Override
+        public Integer visitVarDeclaration(Statement.VarDeclaration declaration) {
+            Token name = declaration.getName();
+            line = name.line;
+            int initializer = expression(declaration.getExpression());
+            return arena.add(VAR_DECLARATION, name.line, arena.name(name), initializer, NONE);
+        }
+
+        @Override
+        public Integer visitBlockStatement(Statement.BlockStatement blockStatement) {
+            List<Statement> statements = blockStatement.getStatements();
+            int[] nodes = new int[statements.size()];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = statement(statements.get(i));
+            }
+            int first = arena.addList(nodes, nodes.length);
+            return arena.add(BLOCK_STATEMENT, line, first, nodes.length, NONE);
+        }
+
+        @Override
+        public Integer visitIfStatement(Statement.IfStatement ifStatement) {
+            int condition = expression(ifStatement.getCondition());
+            int conditionLine = line;
+            int thenBranch = statement(ifStatement.getThenBranch());
+            int elseBranch = statement(ifStatement.getElseBranch());
+            return arena.add(IF_STATEMENT, conditionLine, condition, thenBranch, elseBranch);
+        }
+    }
+}
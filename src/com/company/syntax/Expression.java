@@ -1,10 +1,25 @@
+// Generated by com.company.tools.GenerateAst, edit the node definitions there instead.
 package com.company.syntax;
 
 import com.company.tokenizer.Token;
 
-public abstract class Expression {
+public abstract sealed class Expression permits
+        Expression.Assign,
+        Expression.Binary,
+        Expression.Grouping,
+        Expression.Literal,
+        Expression.Unary,
+        Expression.Variable {
+    public static final int ASSIGN = 0;
+    public static final int BINARY = 1;
+    public static final int GROUPING = 2;
+    public static final int LITERAL = 3;
+    public static final int UNARY = 4;
+    public static final int VARIABLE = 5;
 
     public interface Visitor<R> {
+        R visitAssignExpression(Assign expression);
+
         R visitBinaryExpression(Binary expression);
 
         R visitGroupingExpression(Grouping expression);
@@ -14,13 +29,43 @@ public abstract class Expression {
         R visitUnaryExpression(Unary expression);
 
         R visitVariableExpression(Variable expression);
+    }
 
-        R visitAssignExpression(Assign expression);
+    public final int kind;
 
+    Expression(int kind) {
+        this.kind = kind;
     }
 
     public abstract <R> R accept(Visitor<R> visitor);
 
+    /**
+     * Same as expression.accept(visitor), but a switch on the kind instead of a virtual call,
+     * so a hot call site only ever calls the visitor
+     *
+     * @param expression
+     * @param visitor
+     * @return
+     */
+    public static <R> R dispatch(Expression expression, Visitor<R> visitor) {
+        switch (expression.kind) {
+            case ASSIGN:
+                return visitor.visitAssignExpression((Assign) expression);
+            case BINARY:
+                return visitor.visitBinaryExpression((Binary) expression);
+            case GROUPING:
+                return visitor.visitGroupingExpression((Grouping) expression);
+            case LITERAL:
+                return visitor.visitLiteralExpression((Literal) expression);
+            case UNARY:
+                return visitor.visitUnaryExpression((Unary) expression);
+            case VARIABLE:
+                return visitor.visitVariableExpression((Variable) expression);
+            default:
+                throw new IllegalStateException("Unknown kind " + expression.kind);
+        }
+    }
+
     /**
      * 赋值是表达式，而不是语句
      *
@@ -30,8 +75,15 @@ public abstract class Expression {
      *
      *  That means the rule slots between expression and equality (the next lowest precedence expression).
      */
-    public static class Assign extends Expression {
+    public static final class Assign extends Expression {
+        public final Token name;
+        public final Expression value;
+        // filled in by later passes
+        public int depth = -1;
+        public int slot = -1;
+
         public Assign(Token name, Expression value) {
+            super(ASSIGN);
             this.name = name;
             this.value = value;
         }
@@ -44,8 +96,13 @@ public abstract class Expression {
             return value;
         }
 
-        final Token name;
-        final Expression value;
+        public int getDepth() {
+            return depth;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
 
         @Override
         public <R> R accept(Visitor<R> visitor) {
@@ -53,8 +110,13 @@ public abstract class Expression {
         }
     }
 
-    public static class Binary extends Expression {
+    public static final class Binary extends Expression {
+        public final Expression left;
+        public final Token operator;
+        public final Expression right;
+
         public Binary(Expression left, Token operator, Expression right) {
+            super(BINARY);
             this.left = left;
             this.operator = operator;
             this.right = right;
@@ -72,18 +134,17 @@ public abstract class Expression {
             return right;
         }
 
-        final Expression left;
-        final Token operator;
-        final Expression right;
-
         @Override
-        public  <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitBinaryExpression(this);
         }
     }
 
-    public static class Grouping extends Expression {
+    public static final class Grouping extends Expression {
+        public final Expression expression;
+
         public Grouping(Expression expression) {
+            super(GROUPING);
             this.expression = expression;
         }
 
@@ -91,16 +152,17 @@ public abstract class Expression {
             return expression;
         }
 
-        final Expression expression;
-
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitGroupingExpression(this);
         }
     }
 
-    public static class Literal extends Expression {
+    public static final class Literal extends Expression {
+        public final Object value;
+
         public Literal(Object value) {
+            super(LITERAL);
             this.value = value;
         }
 
@@ -108,16 +170,18 @@ public abstract class Expression {
             return value;
         }
 
-        final Object value;
-
         @Override
-       public <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitLiteralExpression(this);
         }
     }
 
-    public static class Unary extends Expression {
+    public static final class Unary extends Expression {
+        public final Token operator;
+        public final Expression right;
+
         public Unary(Token operator, Expression right) {
+            super(UNARY);
             this.operator = operator;
             this.right = right;
         }
@@ -130,17 +194,20 @@ public abstract class Expression {
             return right;
         }
 
-        final Token operator;
-        final Expression right;
-
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitUnaryExpression(this);
         }
     }
 
-    public static class Variable extends Expression {
+    public static final class Variable extends Expression {
+        public final Token name;
+        // filled in by later passes
+        public int depth = -1;
+        public int slot = -1;
+
         public Variable(Token name) {
+            super(VARIABLE);
             this.name = name;
         }
 
@@ -148,13 +215,17 @@ public abstract class Expression {
             return name;
         }
 
-        final Token name;
+        public int getDepth() {
+            return depth;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
 
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitVariableExpression(this);
         }
     }
-
 }
-
@@ -1,30 +1,75 @@
+// Generated by com.company.tools.GenerateAst, edit the node definitions there instead.
 package com.company.syntax;
-import com.company.syntax.Expression;
+
 import com.company.tokenizer.Token;
 
 import java.util.List;
 
-public abstract class Statement {
+public abstract sealed class Statement permits
+        Statement.ExprStatement,
+        Statement.PrintStatement,
+        Statement.VarDeclaration,
+        Statement.BlockStatement,
+        Statement.IfStatement {
+    public static final int EXPR_STATEMENT = 0;
+    public static final int PRINT_STATEMENT = 1;
+    public static final int VAR_DECLARATION = 2;
+    public static final int BLOCK_STATEMENT = 3;
+    public static final int IF_STATEMENT = 4;
 
     public interface Visitor<R> {
         R visitExpressionStatement(ExprStatement statement);
 
         R visitPrintStatement(PrintStatement statement);
 
-        R visitVarDeclaration(VarDeclaration declaration);
+        R visitVarDeclaration(VarDeclaration statement);
 
-        R visitBlockStatement(BlockStatement blockStatement);
+        R visitBlockStatement(BlockStatement statement);
 
-        R visitIfStatement(IfStatement ifStatement);
+        R visitIfStatement(IfStatement statement);
     }
 
-    public abstract <R> R accept(Visitor<R> statement);
+    public final int kind;
+
+    Statement(int kind) {
+        this.kind = kind;
+    }
+
+    public abstract <R> R accept(Visitor<R> visitor);
+
+    /**
+     * Same as statement.accept(visitor), but a switch on the kind instead of a virtual call,
+     * so a hot call site only ever calls the visitor
+     *
+     * @param statement
+     * @param visitor
+     * @return
+     */
+    public static <R> R dispatch(Statement statement, Visitor<R> visitor) {
+        switch (statement.kind) {
+            case EXPR_STATEMENT:
+                return visitor.visitExpressionStatement((ExprStatement) statement);
+            case PRINT_STATEMENT:
+                return visitor.visitPrintStatement((PrintStatement) statement);
+            case VAR_DECLARATION:
+                return visitor.visitVarDeclaration((VarDeclaration) statement);
+            case BLOCK_STATEMENT:
+                return visitor.visitBlockStatement((BlockStatement) statement);
+            case IF_STATEMENT:
+                return visitor.visitIfStatement((IfStatement) statement);
+            default:
+                throw new IllegalStateException("Unknown kind " + statement.kind);
+        }
+    }
 
     /**
      * Expression Statement
      */
-    public static class ExprStatement extends Statement {
+    public static final class ExprStatement extends Statement {
+        public final Expression expr;
+
         public ExprStatement(Expression expr) {
+            super(EXPR_STATEMENT);
             this.expr = expr;
         }
 
@@ -32,19 +77,20 @@ public abstract class Statement {
             return expr;
         }
 
-        final Expression expr;
-
         @Override
-        public <R> R accept(Visitor<R> statement) {
-            return statement.visitExpressionStatement(this);
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitExpressionStatement(this);
         }
     }
 
     /**
      * Print Statement
      */
-    public static class PrintStatement extends Statement {
+    public static final class PrintStatement extends Statement {
+        public final Expression expr;
+
         public PrintStatement(Expression expr) {
+            super(PRINT_STATEMENT);
             this.expr = expr;
         }
 
@@ -52,11 +98,9 @@ public abstract class Statement {
             return expr;
         }
 
-        final Expression expr;
-
         @Override
-        public <R> R accept(Visitor<R> statement) {
-            return statement.visitPrintStatement(this);
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitPrintStatement(this);
         }
     }
 
@@ -66,8 +110,14 @@ public abstract class Statement {
      * A variable declaration statement brings a new variable into the world
      * Once that's done, a variable expression accesses that binding.
      */
-    public static class VarDeclaration extends Statement {
+    public static final class VarDeclaration extends Statement {
+        public final Token name;
+        public final Expression expression;
+        // filled in by later passes
+        public int slot = -1;
+
         public VarDeclaration(Token name, Expression expression) {
+            super(VAR_DECLARATION);
             this.name = name;
             this.expression = expression;
         }
@@ -80,17 +130,23 @@ public abstract class Statement {
             return expression;
         }
 
-        final Token name;
-        final Expression expression;
+        public int getSlot() {
+            return slot;
+        }
 
         @Override
-        public <R> R accept(Visitor<R> statement) {
-            return statement.visitVarDeclaration(this);
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitVarDeclaration(this);
         }
     }
 
-    public static class BlockStatement extends Statement {
+    public static final class BlockStatement extends Statement {
+        public final List<Statement> statements;
+        // filled in by later passes
+        public int slots = 0;
+
         public BlockStatement(List<Statement> statements) {
+            super(BLOCK_STATEMENT);
             this.statements = statements;
         }
 
@@ -98,16 +154,23 @@ public abstract class Statement {
             return statements;
         }
 
-        final List<Statement> statements;
+        public int getSlots() {
+            return slots;
+        }
 
         @Override
-        public <R> R accept(Visitor<R> statement) {
-            return statement.visitBlockStatement(this);
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitBlockStatement(this);
         }
     }
 
-    public static class IfStatement extends Statement {
+    public static final class IfStatement extends Statement {
+        public final Expression condition;
+        public final Statement thenBranch;
+        public final Statement elseBranch;
+
         public IfStatement(Expression condition, Statement thenBranch, Statement elseBranch) {
+            super(IF_STATEMENT);
             this.condition = condition;
             this.thenBranch = thenBranch;
             this.elseBranch = elseBranch;
@@ -125,13 +188,9 @@ public abstract class Statement {
             return elseBranch;
         }
 
-        final Expression condition;
-        final Statement thenBranch;
-        final Statement elseBranch;
-
         @Override
-        public <R> R accept(Visitor<R> statement) {
-            return statement.visitIfStatement(this);
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitIfStatement(this);
         }
     }
 }
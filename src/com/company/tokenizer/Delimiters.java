@@ -0,0 +1,98 @@
+package com.company.tokenizer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Skipping helpers for the bodies of comments and string literals, where the scanner is only looking for
+ * a closing delimiter and counting lines.
+ *
+ * When VectorDelimiters was compiled (it is in the optional source root src-vector, which needs
+ * {@code --add-modules jdk.incubator.vector}) and the JVM runs with that module, the work is done a whole vector
+ * at a time. Otherwise (or with {@code -Dlox.scalar=true}) the plain loops below are used.
+ * VectorDelimiters is only found by name, so src builds without the incubator module.
+ */
+final class Delimiters {
+    private static final String VECTOR_CLASS = "com.company.tokenizer.VectorDelimiters";
+    // a static final field, so the JIT sees the one implementation
+    private static final Search VECTOR = loadVector();
+    static final boolean VECTORIZED = VECTOR != null;
+
+    /**
+     * The same four operations a whole vector at a time
+     */
+    interface Search {
+        int indexOf(char[] chars, int from, int to, char c);
+
+        int countNewlines(char[] chars, int from, int to);
+
+        int indexOf(ByteBuffer bytes, int from, int to, byte c);
+
+        int countNewlines(ByteBuffer bytes, int from, int to);
+    }
+
+    private Delimiters() {
+    }
+
+    /**
+     * @return null when the scalar loops are used
+     */
+    private static Search loadVector() {
+        if (Boolean.getBoolean("lox.scalar") || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (Search) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // src-vector was not compiled
+            return null;
+        }
+    }
+
+    /**
+     * @return the index of the first c in chars[from, to), or to
+     */
+    static int indexOf(char[] chars, int from, int to, char c) {
+        if (VECTORIZED) {
+            return VECTOR.indexOf(chars, from, to, c);
+        }
+        for (int i = from; i < to; i++) {
+            if (chars[i] == c) return i;
+        }
+        return to;
+    }
+
+    static int countNewlines(char[] chars, int from, int to) {
+        if (VECTORIZED) {
+            return VECTOR.countNewlines(chars, from, to);
+        }
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (chars[i] == '\n') count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the index of the first c in bytes[from, to), or to
+     */
+    static int indexOf(ByteBuffer bytes, int from, int to, byte c) {
+        if (VECTORIZED) {
+            return VECTOR.indexOf(bytes, from, to, c);
+        }
+        for (int i = from; i < to; i++) {
+            if (bytes.get(i) == c) return i;
+        }
+        return to;
+    }
+
+    static int countNewlines(ByteBuffer bytes, int from, int to) {
+        if (VECTORIZED) {
+            return VECTOR.countNewlines(bytes, from, to);
+        }
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (bytes.get(i) == '\n') count++;
+        }
+        return count;
+    }
+}
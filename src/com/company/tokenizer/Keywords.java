@@ -0,0 +1,77 @@
+package com.company.tokenizer;
+
+/**
+ * Keyword recognition straight on the source characters.
+ *
+ * Dispatches on the length and the first character, so at most one keyword is compared and
+ * no substring or hash is needed for identifiers that turn out not to be keywords.
+ */
+final class Keywords {
+
+    private Keywords() {
+    }
+
+    /**
+     * @return the keyword type of chars[start, start + length), or IDENTIFIER
+     */
+    static TokenType lookup(char[] chars, int start, int length) {
+        switch (length) {
+            case 2:
+                switch (chars[start]) {
+                    case 'i': return check(chars, start, TokenType.IF);
+                    case 'o': return check(chars, start, TokenType.OR);
+                }
+                break;
+            case 3:
+                switch (chars[start]) {
+                    case 'a': return check(chars, start, TokenType.AND);
+                    case 'f':
+                        switch (chars[start + 1]) {
+                            case 'o': return check(chars, start, TokenType.FOR);
+                            case 'u': return check(chars, start, TokenType.FUN);
+                        }
+                        break;
+                    case 'n': return check(chars, start, TokenType.NIL);
+                    case 'v': return check(chars, start, TokenType.VAR);
+                }
+                break;
+            case 4:
+                switch (chars[start]) {
+                    case 'e': return check(chars, start, TokenType.ELSE);
+                    case 't':
+                        switch (chars[start + 1]) {
+                            case 'h': return check(chars, start, TokenType.THIS);
+                            case 'r': return check(chars, start, TokenType.TRUE);
+                        }
+                        break;
+                }
+                break;
+            case 5:
+                switch (chars[start]) {
+                    case 'c': return check(chars, start, TokenType.CLASS);
+                    case 'f': return check(chars, start, TokenType.FALSE);
+                    case 'p': return check(chars, start, TokenType.PRINT);
+                    case 's': return check(chars, start, TokenType.SUPER);
+                    case 'w': return check(chars, start, TokenType.WHILE);
+                }
+                break;
+            case 6:
+                if (chars[start] == 'r') return check(chars, start, TokenType.RETURN);
+                break;
+        }
+        return TokenType.IDENTIFIER;
+    }
+
+    /**
+     * The length already matches, compare the rest of the keyword
+     */
+    private static TokenType check(char[] chars, int start, TokenType keyword) {
+        String lexeme = keyword.lexeme();
+        for (int i = 1; i < lexeme.length(); i++) {
+            if (chars[start + i] != lexeme.charAt(i)) {
+                return TokenType.IDENTIFIER;
+            }
+        }
+        return keyword;
+    }
+}
@@ -0,0 +1,274 @@
+package com.company.tokenizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.company.utils.Numbers;
+
+import static com.company.utils.Helpers.isAlpha;
+import static com.company.utils.Helpers.isAlphaNumeric;
+import static com.company.utils.Helpers.isDigit;
+
+/**
+ * Byte oriented scanner for source files.
+ *
+ * The file is memory-mapped and scanned as ASCII bytes, it is never decoded into a String as a whole.
+ * Everything outside string literals (operators, numbers, identifiers, keywords) is ASCII in Lox,
+ * so UTF-8 decoding is only needed for the body of a string literal that actually contains non-ASCII bytes.
+ */
+public class MappedScanner implements TokenSource {
+    private final ByteBuffer bytes;
+    private final int end;
+
+    private int start = 0;
+    private int current = 0;
+    private int line = 1;
+
+    private Token next;
+
+    private final SymbolTable symbols = new SymbolTable();
+    // identifiers and numbers are copied here (they are ASCII) to reuse the char based keyword and symbol lookup
+    private char[] scratch = new char[64];
+
+    public MappedScanner(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.current = bytes.position();
+        this.end = bytes.limit();
+    }
+
+    /**
+     * Maps the whole file read-only and scans it
+     *
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    public static MappedScanner open(Path path) throws IOException {
+        return new MappedScanner(map(path));
+    }
+
+    /**
+     * Maps the whole file read-only, the mapping stays valid after the channel is closed
+     *
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    public static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Source file too large to map: " + path);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    public List<Token> scanTokens() {
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        while ((token = nextToken()) != null) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    @Override
+    public Token nextToken() {
+        while (next == null && !isAtEnd()) {
+            start = current;
+            scanToken();
+        }
+        Token token = next;
+        next = null;
+        return token;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    private void scanToken() {
+        int c = advance();
+        switch (c) {
+            case '(':
+                addToken(TokenType.LEFT_PAREN);
+                break;
+            case ')':
+                addToken(TokenType.RIGHT_PAREN);
+                break;
+            case '{':
+                addToken(TokenType.LEFT_BRACE);
+                break;
+            case '}':
+                addToken(TokenType.RIGHT_BRACE);
+                break;
+            case ',':
+                addToken(TokenType.COMMA);
+                break;
+            case '.':
+                addToken(TokenType.DOT);
+                break;
+            case '-':
+                addToken(TokenType.MINUS);
+                break;
+            case '+':
+                addToken(TokenType.PLUS);
+                break;
+            case '*':
+                addToken(TokenType.STAR);
+                break;
+            case ';':
+                addToken(TokenType.SEMICOLON);
+                break;
+            case '!':
+                addToken(match('=') ? TokenType.BANG_EQUAL : TokenType.BANG);
+                break;
+            case '=':
+                addToken(match('=') ? TokenType.EQUAL_EQUAL : TokenType.EQUAL);
+                break;
+            case '<':
+                addToken(match('=') ? TokenType.LESS_EQUAL : TokenType.LESS);
+                break;
+            case '>':
+                addToken(match('=') ? TokenType.GREATER_EQUAL : TokenType.GREATER);
+                break;
+            case '/': {
+                if (match('/')) { // commands
+                    current = Delimiters.indexOf(bytes, current, end, (byte) '\n');
+                } else {
+                    addToken(TokenType.SLASH);
+                }
+            }
+            break;
+
+            case ' ':
+            case '\r':
+            case '\t':
+                break;
+            case '\n':
+                line++;
+                break;
+
+            case '"':
+                string();
+                break;
+
+            default:
+                if (isDigit(c)) {
+                    number();
+                } else if (isAlpha(c)) {
+                    identifier();
+                }
+                // non-ASCII bytes outside of string literals are skipped, like unknown characters in Scanner
+        }
+    }
+
+    private void addToken(TokenType tokenType) {
+        next = new Token(tokenType, tokenType.lexeme(), null, line);
+    }
+
+    private boolean match(char excepted) {
+        if (isAtEnd()) {
+            return false;
+        }
+        if (bytes.get(current) == excepted) {
+            current++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isAtEnd() {
+        return current >= end;
+    }
+
+    private int peek(int offset) {
+        if (current + offset >= end) {
+            return '\0';
+        }
+        return bytes.get(current + offset) & 0xFF;
+    }
+
+    private int peek() {
+        return peek(0);
+    }
+
+    private int advance() {
+        return bytes.get(current++) & 0xFF;
+    }
+
+    private void string() {
+        current = Delimiters.indexOf(bytes, current, end, (byte) '"');
+        line += Delimiters.countNewlines(bytes, start + 1, current);
+
+        if (isAtEnd()) {
+//            Lox.error(line, "Unterminated string.");
+            return;
+        }
+        // advance the closing "
+        advance();
+        String value;
+        if (isAscii(start + 1, current - 1)) {
+            value = new String(copyToScratch(start + 1, current - 1), 0, current - start - 2);
+        } else {
+            ByteBuffer body = bytes.duplicate();
+            body.limit(current - 1).position(start + 1);
+            value = StandardCharsets.UTF_8.decode(body).toString();
+        }
+        next = new Token(TokenType.STRING, '"' + value + '"', value, line);
+    }
+
+    private void number() {
+        while (isDigit(peek())) advance();
+
+        // number.number
+        if (peek() == '.' && isDigit(peek(1))) {
+            advance(); // .
+            while (isDigit(peek())) advance();
+        }
+
+        String text = new String(copyToScratch(start, current), 0, current - start);
+        next = new Token(TokenType.NUMBER, text, Numbers.box(Numbers.parse(bytes, start, current)), line);
+    }
+
+    private void identifier() {
+        while (isAlphaNumeric(peek())) advance();
+
+        int length = current - start;
+        char[] chars = copyToScratch(start, current);
+        TokenType type = Keywords.lookup(chars, 0, length);
+        if (type == TokenType.IDENTIFIER) {
+            next = new Token(type, symbols.intern(chars, 0, length), null, line);
+        } else {
+            addToken(type);
+        }
+    }
+
+    private boolean isAscii(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes.get(i) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Widens the ASCII bytes [from, to) into the scratch buffer
+     */
+    private char[] copyToScratch(int from, int to) {
+        int length = to - from;
+        if (length > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(length, scratch.length * 2));
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = (char) bytes.get(from + i);
+        }
+        return scratch;
+    }
+}
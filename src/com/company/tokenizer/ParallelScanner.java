@@ -0,0 +1,120 @@
+package com.company.tokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel lexing for very large sources.
+ *
+ * A quick pre-pass splits the source after newlines that are outside of string literals and comments
+ * (no token can span such a newline) and records the line number each chunk starts at.
+ * Every chunk is then scanned by an independent {@link Scanner} on a ForkJoinPool and the token lists
+ * are concatenated in order, which gives exactly the tokens of {@link Scanner#scanTokens()}.
+ *
+ * Each chunk scanner interns identifiers into its own SymbolTable, so a name is allocated once per chunk.
+ */
+public class ParallelScanner {
+    // below this size the pre-pass and task overhead is not worth it
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    private final ForkJoinPool pool;
+
+    public ParallelScanner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelScanner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public List<Token> scanTokens(String source) {
+        char[] chars = source.toCharArray();
+        int parallelism = pool.getParallelism();
+        if (parallelism <= 1 || chars.length < 2 * MIN_CHUNK_SIZE) {
+            return new Scanner(chars, 0, chars.length, 1).scanTokens();
+        }
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, chars.length / (parallelism * 4));
+        List<Chunk> chunks = split(chars, chunkSize);
+
+        List<Callable<List<Token>>> tasks = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            tasks.add(() -> new Scanner(chars, chunk.from, chunk.to, chunk.line).scanTokens());
+        }
+        List<Future<List<Token>>> results = pool.invokeAll(tasks);
+
+        List<List<Token>> parts = new ArrayList<>(results.size());
+        int size = 0;
+        for (Future<List<Token>> result : results) {
+            List<Token> part = join(result);
+            parts.add(part);
+            size += part.size();
+        }
+        List<Token> tokens = new ArrayList<>(size);
+        for (List<Token> part : parts) {
+            tokens.addAll(part);
+        }
+        return tokens;
+    }
+
+    private static List<Token> join(Future<List<Token>> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Pre-pass: tracks only whether we are inside a string or a comment, the same way Scanner does,
+     * and cuts a chunk after the first free newline past every chunkSize characters.
+     */
+    static List<Chunk> split(char[] chars, int chunkSize) {
+        List<Chunk> chunks = new ArrayList<>();
+        int from = 0;
+        int fromLine = 1;
+        int line = 1;
+        int i = 0;
+        while (i < chars.length) {
+            char c = chars[i++];
+            if (c == '\n') {
+                line++;
+                if (i - from >= chunkSize) {
+                    chunks.add(new Chunk(from, i, fromLine));
+                    from = i;
+                    fromLine = line;
+                }
+            } else if (c == '"') {
+                int quote = Delimiters.indexOf(chars, i, chars.length, '"');
+                line += Delimiters.countNewlines(chars, i, quote);
+                i = Math.min(quote + 1, chars.length);
+            } else if (c == '/' && i < chars.length && chars[i] == '/') {
+                // stop on the newline, it is handled above
+                i = Delimiters.indexOf(chars, i, chars.length, '\n');
+            }
+        }
+        chunks.add(new Chunk(from, chars.length, fromLine));
+        return chunks;
+    }
+
+    static class Chunk {
+        final int from;
+        final int to;
+        final int line;
+
+        Chunk(int from, int to, int line) {
+            this.from = from;
+            this.to = to;
+            this.line = line;
+        }
+    }
+}
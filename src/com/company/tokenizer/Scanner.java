@@ -1,58 +1,181 @@
 package com.company.tokenizer;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 import com.company.utils.*;
 
 import static com.company.utils.Helpers.isDigit;
 
-public class Scanner {
-    private final List<Token> tokens = new ArrayList<>();
-    private final String source;
+public class Scanner implements TokenSource {
+    private static final int BUFFER_SIZE = 8192;
+
+    // 流式输入；对于 String 和 char[] 源码为 null
+    private final Reader reader;
+    // String 源码，和流式输入一样按块读进 buffer，不整体复制；其他输入为 null
+    private final String sourceText;
+    private boolean eof;
+
+    // 源码字符的滑动窗口，[0, limit) 为有效字符
+    // 对于 char[] 源码，buffer 就是全部源码；其他输入的 buffer 只保留当前 token 及其之后已读入的字符
+    private char[] buffer;
+    private int limit;
+    // 已经滑出 buffer 的字符数，buffer[i] 在整个输入中的位置是 base + i
+    private int base;
+
+    // scanToken() 解析出来、还没有被 nextToken() 取走的 token
+    private Token next;
+    // 不为 null 时 token 直接写入 TokenBuffer，不再创建 Token 对象
+    private TokenBuffer sink;
 
     // 当前解析 Token 词法的开始位置
-    // 解析到合法 token 时，其对应的字符串描述为：source.substring(start, current)
+    // 解析到合法 token 时，其对应的字符串描述为：new String(buffer, start, current - start)
     private int start = 0;
     // 当前词法解析遍历到那个字符
     private int current = 0;
     private int line = 1;
+    // start 所在的行，多行字符串 token 的 line 是结束的那一行
+    private int startLine = 1;
 
-    private static final Map<String, TokenType> keywords;
-
-    static {
-        keywords = new HashMap<>();
-        keywords.put("and",    TokenType.AND);
-        keywords.put("class",  TokenType.CLASS);
-        keywords.put("else",   TokenType.ELSE);
-        keywords.put("false",  TokenType.FALSE);
-        keywords.put("for",    TokenType.FOR);
-        keywords.put("fun",    TokenType.FUN);
-        keywords.put("if",     TokenType.IF);
-        keywords.put("nil",    TokenType.NIL);
-        keywords.put("or",     TokenType.OR);
-        keywords.put("print",  TokenType.PRINT);
-        keywords.put("return", TokenType.RETURN);
-        keywords.put("super",  TokenType.SUPER);
-        keywords.put("this",   TokenType.THIS);
-        keywords.put("true",   TokenType.TRUE);
-        keywords.put("var",    TokenType.VAR);
-        keywords.put("while",  TokenType.WHILE);
-    }
+    // 标识符名字表，同一个名字在一个编译单元里只分配一次
+    private final SymbolTable symbols = new SymbolTable();
 
 
+    /**
+     * The source is copied into the sliding buffer a block at a time, like a stream,
+     * so scanning it does not keep a second copy of the whole program alive
+     *
+     * @param source
+     */
     public Scanner(String source) {
-        this.source = source;
+        this.reader = null;
+        this.sourceText = source;
+        this.buffer = new char[Math.max(16, Math.min(BUFFER_SIZE, source.length()))];
+        this.limit = 0;
     }
 
+    /**
+     * Scans only source[from, to), numbering lines from line.
+     * Used for parallel and incremental lexing, the range must start and end outside of any token.
+     */
+    public Scanner(char[] source, int from, int to, int line) {
+        this.reader = null;
+        this.sourceText = null;
+        this.eof = true;
+        this.buffer = source;
+        this.limit = to;
+        this.start = from;
+        this.current = from;
+        this.line = line;
+    }
+
+    /**
+     * Streaming mode: characters are pulled from the reader through a fixed-size sliding buffer,
+     * so memory stays bounded by the longest single lexeme instead of the size of the program.
+     *
+     * @param reader
+     */
+    public Scanner(Reader reader) {
+        this.reader = reader;
+        this.sourceText = null;
+        this.buffer = new char[BUFFER_SIZE];
+        this.limit = 0;
+    }
+
+    /**
+     * Streaming mode over a UTF-8 encoded channel
+     *
+     * @param channel
+     */
+    public Scanner(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Scans the whole input eagerly.
+     * Prefer {@link #nextToken()} for large inputs, the parser can consume tokens lazily.
+     *
+     * @return
+     */
     public List<Token> scanTokens() {
-        while (!isAtEnd()) {
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        while ((token = nextToken()) != null) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Scans the whole input into a compact {@link TokenBuffer}, no token objects or lexemes are created.
+     * Only available for String sources, the buffer slices lexemes out of the source on demand.
+     *
+     * @return
+     */
+    public TokenBuffer scanTokenBuffer() {
+        if (sourceText == null) {
+            throw new IllegalStateException("TokenBuffer needs the source as a String");
+        }
+        TokenBuffer tokens = new TokenBuffer(sourceText, symbols);
+        sink = tokens;
+        try {
+            while (!isAtEnd()) {
+                start = current;
+                scanToken();
+            }
+        } finally {
+            sink = null;
+        }
+        return tokens;
+    }
+
+    /**
+     * Scans until the next token is produced (whitespace and comments produce nothing)
+     *
+     * @return the next token, or null at the end of input
+     */
+    @Override
+    public Token nextToken() {
+        while (next == null && !isAtEnd()) {
             start = current;
+            startLine = line;
             scanToken();
         }
-        return tokens;
+        Token token = next;
+        next = null;
+        return token;
+    }
+
+    /**
+     * @return the offset of the token last returned by {@link #nextToken()}
+     */
+    public int getTokenStart() {
+        return base + start;
+    }
+
+    /**
+     * @return the line the token last returned by {@link #nextToken()} starts on
+     */
+    public int getTokenStartLine() {
+        return startLine;
+    }
+
+    /**
+     * @return the offset just past the token last returned by {@link #nextToken()}
+     */
+    public int getTokenEnd() {
+        return base + current;
     }
 
     private void scanToken() {
@@ -103,7 +226,7 @@ public class Scanner {
                 break;
             case '/': {
                 if (match('/')) { // commands
-                    while (peek() != '\n' && !isAtEnd()) advance();
+                    comment();
                 } else {
                     addToken(TokenType.SLASH);
                 }
@@ -139,8 +262,17 @@ public class Scanner {
     }
 
     private void addToken(TokenType tokenType, Object literal) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(tokenType, text, literal, line));
+        if (sink != null) {
+            sink.add(tokenType, base + start, current - start, line);
+            return;
+        }
+        String text = tokenType.lexeme();
+        if (tokenType == TokenType.IDENTIFIER) {
+            text = symbols.intern(buffer, start, current - start);
+        } else if (text == null) {
+            text = new String(buffer, start, current - start);
+        }
+        next = new Token(tokenType, text, literal, line);
     }
 
     /**
@@ -154,7 +286,7 @@ public class Scanner {
         if (isAtEnd()) {
             return false;
         }
-        if (source.charAt(current) == excepted) {
+        if (buffer[current] == excepted) {
             advance();
             return true;
         }
@@ -167,7 +299,61 @@ public class Scanner {
      * @return
      */
     private boolean isAtEnd() {
-        return current >= source.length();
+        return current >= limit && !fill();
+    }
+
+    /**
+     * Reads more characters into the buffer.
+     * Characters before start belong to tokens that were already emitted, so they are dropped first;
+     * the buffer only grows when a single lexeme does not fit into it.
+     *
+     * @return false if no more characters are available
+     */
+    private boolean fill() {
+        if (eof) {
+            return false;
+        }
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            base += start;
+            limit -= start;
+            current -= start;
+            start = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = sourceText != null ? copy() : read();
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Copies the next block of a String source into the free part of the buffer
+     *
+     * @return the number of characters copied, -1 at the end of the source
+     */
+    private int copy() {
+        // everything before buffer[limit] has been copied already
+        int from = base + limit;
+        int count = Math.min(buffer.length - limit, sourceText.length() - from);
+        if (count <= 0) {
+            return -1;
+        }
+        sourceText.getChars(from, from + count, buffer, limit);
+        return count;
+    }
+
+    private int read() {
+        try {
+            return reader.read(buffer, limit, buffer.length - limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
@@ -180,10 +366,12 @@ public class Scanner {
         if (isAtEnd()) {
             return '\0';
         }
-        if (current + offset >= source.length()) {
-            return '\0';
+        while (current + offset >= limit) {
+            if (!fill()) {
+                return '\0';
+            }
         }
-        return source.charAt(current + offset);
+        return buffer[current + offset];
     }
 
     private char peek() {
@@ -198,16 +386,33 @@ public class Scanner {
      * @return
      */
     private char advance() {
-        return source.charAt(current++);
+        return buffer[current++];
     }
 
 
+    /**
+     * Skips a line comment up to (not including) the newline.
+     * Comments produce no token, so start follows current and the buffer can slide past them.
+     */
+    private void comment() {
+        while (!isAtEnd()) {
+            current = Delimiters.indexOf(buffer, current, limit, '\n');
+            start = current;
+            if (current < limit) {
+                return;
+            }
+        }
+    }
+
     private void string() {
-        while (!isAtEnd() && peek() != '"') {
-            if (peek() == '\n') {
-                line++;
+        // skip the body a buffer window at a time, looking only for the closing " and counting lines
+        while (!isAtEnd()) {
+            int quote = Delimiters.indexOf(buffer, current, limit, '"');
+            line += Delimiters.countNewlines(buffer, current, quote);
+            current = quote;
+            if (quote < limit) {
+                break;
             }
-            advance();
         }
 
         if (isAtEnd()) {
@@ -217,7 +422,8 @@ public class Scanner {
         // advance the closing "
         advance();
         // start is the begin ", current is the end "
-        String value = source.substring(start + 1, current - 1);
+        // a TokenBuffer slices the value out of the source only when it is asked for
+        String value = sink == null ? new String(buffer, start + 1, current - start - 2) : null;
         addToken(TokenType.STRING, value);
     }
 
@@ -230,16 +436,17 @@ public class Scanner {
             while (isDigit(peek())) advance();
         }
 
-        addToken(TokenType.NUMBER, Double.parseDouble(source.substring(start, current)));
+        double value = Numbers.parse(buffer, start, current);
+        if (sink != null) {
+            sink.addNumber(base + start, current - start, line, value);
+            return;
+        }
+        addToken(TokenType.NUMBER, Numbers.box(value));
     }
 
     private void identifier() {
         while (Helpers.isAlphaNumeric(peek())) advance();
 
-        String text = source.substring(start, current);
-        TokenType type = keywords.get(text);
-        if (type == null) type = TokenType.IDENTIFIER;
-        addToken(type);
-
+        addToken(Keywords.lookup(buffer, start, current - start));
     }
 }
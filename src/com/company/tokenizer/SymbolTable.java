@@ -0,0 +1,97 @@
+package com.company.tokenizer;
+
+/**
+ * Interns identifier names of one compilation unit.
+ *
+ * Lookup works directly on the source characters, so every distinct name is allocated exactly once
+ * and all tokens (and therefore {@code Environment} keys) referring to it share the same String,
+ * which also makes the HashMap lookups hit the identity fast path of String.equals.
+ */
+public class SymbolTable {
+    private String[] symbols = new String[64];
+    private int size;
+
+    public String intern(char[] chars, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int mask = symbols.length - 1;
+        int index = mix(hash) & mask;
+        String symbol;
+        while ((symbol = symbols[index]) != null) {
+            if (symbol.hashCode() == hash && matches(symbol, chars, start, length)) {
+                return symbol;
+            }
+            index = (index + 1) & mask;
+        }
+        return add(index, new String(chars, start, length));
+    }
+
+    /**
+     * Same as {@link #intern(char[], int, int)} for a name inside a String
+     *
+     * @param source
+     * @param start
+     * @param length
+     * @return
+     */
+    public String intern(String source, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        int mask = symbols.length - 1;
+        int index = mix(hash) & mask;
+        String symbol;
+        while ((symbol = symbols[index]) != null) {
+            if (symbol.hashCode() == hash && symbol.length() == length && source.startsWith(symbol, start)) {
+                return symbol;
+            }
+            index = (index + 1) & mask;
+        }
+        return add(index, source.substring(start, start + length));
+    }
+
+    private String add(int index, String symbol) {
+        symbols[index] = symbol;
+        if (++size * 2 > symbols.length) {
+            rehash();
+        }
+        return symbol;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static boolean matches(String symbol, char[] chars, int start, int length) {
+        if (symbol.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (symbol.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        String[] old = symbols;
+        symbols = new String[old.length * 2];
+        int mask = symbols.length - 1;
+        for (String symbol : old) {
+            if (symbol == null) continue;
+            int index = mix(symbol.hashCode()) & mask;
+            while (symbols[index] != null) {
+                index = (index + 1) & mask;
+            }
+            symbols[index] = symbol;
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,140 @@
+package com.company.tokenizer;
+
+import com.company.utils.Numbers;
+
+import java.util.Arrays;
+
+/**
+ * A compact token list stored as parallel primitive arrays (struct of arrays).
+ *
+ * Every token takes 5 ints: type ordinal, start offset, length, line and literal index.
+ * Lexemes are not stored, they are created from the source characters only when asked for;
+ * number literals are kept unboxed in a double pool and string literals are sliced from the source.
+ *
+ * Compared to a {@code List<Token>} (token object + lexeme String + boxed Double), this is 20 bytes per token
+ * plus 8 bytes per number literal, on top of the source String the buffer keeps alive.
+ * See {@code benchmark.TokenMemoryBenchmark} for a measurement.
+ *
+ * {@code Parser(TokenBuffer)} parses straight from the arrays by index.
+ */
+public class TokenBuffer {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final String source;
+    private final SymbolTable symbols;
+
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    // index into numbers for NUMBER tokens, -1 otherwise
+    private int[] literals = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private double[] numbers = new double[16];
+    private int numberCount;
+
+    public TokenBuffer(String source, SymbolTable symbols) {
+        this.source = source;
+        this.symbols = symbols;
+    }
+
+    void add(TokenType type, int start, int length, int line) {
+        add(type, start, length, line, -1);
+    }
+
+    void addNumber(int start, int length, int line, double value) {
+        add(TokenType.NUMBER, start, length, line, addNumber(value));
+    }
+
+    private void add(TokenType type, int start, int length, int line, int literal) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            literals = Arrays.copyOf(literals, capacity);
+        }
+        types[size] = type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        literals[size] = literal;
+        size++;
+    }
+
+    private int addNumber(double value) {
+        if (numberCount == numbers.length) {
+            numbers = Arrays.copyOf(numbers, numberCount * 2);
+        }
+        numbers[numberCount] = value;
+        return numberCount++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public double number(int index) {
+        return numbers[literals[index]];
+    }
+
+    /**
+     * Fixed tokens (punctuation, keywords) share one constant lexeme, identifiers come from the symbol table
+     * and the others are copied out of the source
+     *
+     * @param index
+     * @return
+     */
+    public String lexeme(int index) {
+        TokenType type = type(index);
+        String lexeme = type.lexeme();
+        if (lexeme != null) {
+            return lexeme;
+        }
+        if (type == TokenType.IDENTIFIER) {
+            return symbols.intern(source, starts[index], lengths[index]);
+        }
+        return source.substring(starts[index], starts[index] + lengths[index]);
+    }
+
+    public Object literal(int index) {
+        switch (type(index)) {
+            case NUMBER:
+                return Numbers.box(number(index));
+            case STRING:
+                // the literal is the lexeme without the quotes
+                return source.substring(starts[index] + 1, starts[index] + lengths[index] - 1);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Materializes a single token
+     *
+     * @param index
+     * @return
+     */
+    public Token token(int index) {
+        return new Token(type(index), lexeme(index), literal(index), lines[index]);
+    }
+}
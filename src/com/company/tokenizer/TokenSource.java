@@ -0,0 +1,20 @@
+package com.company.tokenizer;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A pull-based stream of tokens, the parser asks for the next token only when it needs it
+ */
+public interface TokenSource {
+
+    /**
+     * @return the next token, or null once the input is exhausted
+     */
+    Token nextToken();
+
+    static TokenSource of(List<Token> tokens) {
+        Iterator<Token> iterator = tokens.iterator();
+        return () -> iterator.hasNext() ? iterator.next() : null;
+    }
+}
@@ -3,45 +3,59 @@ package com.company.tokenizer;
 public enum TokenType {
 
     // Single-character tokens.
-    LEFT_PAREN, // (
-    RIGHT_PAREN, // )
-    LEFT_BRACE, // {
-    RIGHT_BRACE, // }
-    COMMA,  // ,
-    DOT, // .
-    MINUS, // -
-    PLUS, // +
-    SEMICOLON, // ;
-    SLASH, // /
-    STAR, // *
-
-    BANG,        // !
-    BANG_EQUAL, // !=
-    EQUAL,      // =
-    EQUAL_EQUAL, // ==
-    GREATER, // >
-    GREATER_EQUAL, //>=
-    LESS, // <
-    LESS_EQUAL, // <=
-
-    STRING,
-    NUMBER,
-
-    IDENTIFIER,
-    AND,  // "and"
-    CLASS,  // "class"
-    ELSE,  // "else"
-    FALSE,  // "false"
-    FOR,  // "for"
-    FUN,  // "fun"
-    IF,  // "if"
-    NIL,  // "nil"
-    OR,  // "or"
-    PRINT,  // "print"
-    RETURN,  // "return"
-    SUPER,  // "super"
-    THIS,  // "this"
-    TRUE,  // "true"
-    VAR,  // "var"
-    WHILE,  // "while"
+    LEFT_PAREN("("), // (
+    RIGHT_PAREN(")"), // )
+    LEFT_BRACE("{"), // {
+    RIGHT_BRACE("}"), // }
+    COMMA(","),  // ,
+    DOT("."), // .
+    MINUS("-"), // -
+    PLUS("+"), // +
+    SEMICOLON(";"), // ;
+    SLASH("/"), // /
+    STAR("*"), // *
+
+    BANG("!"),        // !
+    BANG_EQUAL("!="), // !=
+    EQUAL("="),      // =
+    EQUAL_EQUAL("=="), // ==
+    GREATER(">"), // >
+    GREATER_EQUAL(">="), //>=
+    LESS("<"), // <
+    LESS_EQUAL("<="), // <=
+
+    STRING(null),
+    NUMBER(null),
+
+    IDENTIFIER(null),
+    AND("and"),  // "and"
+    CLASS("class"),  // "class"
+    ELSE("else"),  // "else"
+    FALSE("false"),  // "false"
+    FOR("for"),  // "for"
+    FUN("fun"),  // "fun"
+    IF("if"),  // "if"
+    NIL("nil"),  // "nil"
+    OR("or"),  // "or"
+    PRINT("print"),  // "print"
+    RETURN("return"),  // "return"
+    SUPER("super"),  // "super"
+    THIS("this"),  // "this"
+    TRUE("true"),  // "true"
+    VAR("var"),  // "var"
+    WHILE("while"),  // "while"
+    ;
+
+    private final String lexeme;
+
+    TokenType(String lexeme) {
+        this.lexeme = lexeme;
+    }
+
+    /**
+     * @return the lexeme shared by every token of this type, null for strings, numbers and identifiers
+     */
+    public String lexeme() {
+        return lexeme;
+    }
 }
@@ -3,9 +3,26 @@ package com.company.tools;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Generates the syntax tree classes, Expression.java and Statement.java are written by this tool only.
+ *
+ * Every node class is final with public final fields (plus getters), and the base class is sealed to exactly
+ * the generated nodes. Besides the classic accept(Visitor) every node stores an int kind, and the base class
+ * gets a static dispatch(node, visitor) that switches on it: at a hot call site accept() sees every node class
+ * and is megamorphic, the switch is one tableswitch followed by a direct call.
+ *
+ * A node is described as
+ * <pre>
+ *   ClassName [-> visitMethodName] : Type field, Type field [; Type annotation = initial, Type annotation = initial]
+ * </pre>
+ * the visit method defaults to "visit" + ClassName + BaseName. Documentation is given separately with doc().
+ * Fields are final and set by the constructor. Annotations are mutable fields that later passes fill in,
+ * like the scope distance the Resolver computes for a variable.
+ */
 public class GenerateAst {
     public static void main(String[] args) throws IOException {
         if (args.length != 1) {
@@ -15,53 +32,223 @@ public class GenerateAst {
         String outputDir = args[0];
 
         defineAst(outputDir, "Expression", Arrays.asList(
-                "Binary : Expression left, Token operator, Expression right",
-                "Grouping : Expression expression",
-                "Literal : Object value",
-                "Unary : Token operator, Expression right"
+                doc("Assign : Token name, Expression value ; int depth = -1, int slot = -1",
+                        "赋值是表达式，而不是语句",
+                        "",
+                        "在 C 语言中，赋值表达式时优先级最低的",
+                        "",
+                        "所以它的优先级在 expression < assign < equality",
+                        "",
+                        " That means the rule slots between expression and equality (the next lowest precedence expression)."),
+                node("Binary : Expression left, Token operator, Expression right"),
+                node("Grouping : Expression expression"),
+                node("Literal : Object value"),
+                node("Unary : Token operator, Expression right"),
+                node("Variable : Token name ; int depth = -1, int slot = -1")
         ));
+
+        defineAst(outputDir, "Statement", Arrays.asList(
+                doc("ExprStatement -> visitExpressionStatement : Expression expr",
+                        "Expression Statement"),
+                doc("PrintStatement -> visitPrintStatement : Expression expr",
+                        "Print Statement"),
+                doc("VarDeclaration -> visitVarDeclaration : Token name, Expression expression ; int slot = -1",
+                        "Variable declaration statement",
+                        "",
+                        "A variable declaration statement brings a new variable into the world",
+                        "Once that's done, a variable expression accesses that binding."),
+                node("BlockStatement -> visitBlockStatement : List<Statement> statements ; int slots = 0"),
+                node("IfStatement -> visitIfStatement : Expression condition, Statement thenBranch, Statement elseBranch")
+        ));
+    }
+
+    private static String[] node(String definition) {
+        return new String[]{definition};
     }
 
-    private static void defineAst(String outputDir, String baseName, List<String> types) throws IOException {
+    private static String[] doc(String definition, String... lines) {
+        String[] node = new String[lines.length + 1];
+        node[0] = definition;
+        System.arraycopy(lines, 0, node, 1, lines.length);
+        return node;
+    }
+
+    private static void defineAst(String outputDir, String baseName, List<String[]> types) throws IOException {
         String path = outputDir + "/" + baseName + ".java";
-        PrintWriter writer = new PrintWriter(path, String.valueOf(StandardCharsets.UTF_8));
+        PrintWriter writer = new PrintWriter(path, StandardCharsets.UTF_8);
+
+        boolean usesList = false;
+        StringBuilder permits = new StringBuilder();
+        for (String[] type : types) {
+            usesList |= fieldList(type).contains("List<");
+            if (permits.length() > 0) {
+                permits.append(",\n");
+            }
+            permits.append("        ").append(baseName).append('.').append(className(type));
+        }
+
+        writer.println("// Generated by com.company.tools.GenerateAst, edit the node definitions there instead.");
         writer.println("package com.company.syntax;");
         writer.println();
-        writer.println("import java.util.List;");
         writer.println("import com.company.tokenizer.Token;");
+        if (usesList) {
+            writer.println();
+            writer.println("import java.util.List;");
+        }
         writer.println();
-        writer.println("abstract class " + baseName + "{");
-        // The Ast Classes
-        for (String type: types) {
-            String className = type.split(":")[0].trim();
-            String fields = type.split(":")[1].trim();
-            defineType(writer, baseName, className, fields);
+        writer.println("public abstract sealed class " + baseName + " permits");
+        writer.println(permits + " {");
+
+        // node kinds, the order of the types
+        for (int i = 0; i < types.size(); i++) {
+            writer.println("    public static final int " + constantName(className(types.get(i))) + " = " + i + ";");
+        }
+        writer.println();
+
+        defineVisitor(writer, baseName, types);
 
+        writer.println("    public final int kind;");
+        writer.println();
+        writer.println("    " + baseName + "(int kind) {");
+        writer.println("        this.kind = kind;");
+        writer.println("    }");
+        writer.println();
+        writer.println("    public abstract <R> R accept(Visitor<R> visitor);");
+        writer.println();
+
+        defineDispatch(writer, baseName, types);
+
+        // The Ast Classes
+        for (String[] type : types) {
+            writer.println();
+            defineType(writer, baseName, type);
         }
         writer.println("}");
         writer.close();
     }
 
-    private static void defineType(PrintWriter writer, String baseName, String className, String fieldList) {
-        writer.println("    static class " + className + " extends " + baseName + " {");
-        // Constructor.
-        writer.println("    " + className + "(" + fieldList + ") {");
-
-        // Store parameters in fields.
-        String[] fields = fieldList.split(", ");
-        for (String field : fields) {
-            String name = field.split(" ")[1];
-            writer.println("      this." + name + " = " + name + ";");
+    private static void defineVisitor(PrintWriter writer, String baseName, List<String[]> types) {
+        String parameter = baseName.toLowerCase();
+        writer.println("    public interface Visitor<R> {");
+        for (int i = 0; i < types.size(); i++) {
+            String[] type = types.get(i);
+            if (i > 0) {
+                writer.println();
+            }
+            writer.println("        R " + visitMethod(baseName, type) + "(" + className(type) + " " + parameter + ");");
         }
+        writer.println("    }");
+        writer.println();
+    }
 
+    private static void defineDispatch(PrintWriter writer, String baseName, List<String[]> types) {
+        String parameter = baseName.toLowerCase();
+        writer.println("    /**");
+        writer.println("     * Same as " + parameter + ".accept(visitor), but a switch on the kind instead of a virtual call,");
+        writer.println("     * so a hot call site only ever calls the visitor");
+        writer.println("     *");
+        writer.println("     * @param " + parameter);
+        writer.println("     * @param visitor");
+        writer.println("     * @return");
+        writer.println("     */");
+        writer.println("    public static <R> R dispatch(" + baseName + " " + parameter + ", Visitor<R> visitor) {");
+        writer.println("        switch (" + parameter + ".kind) {");
+        for (String[] type : types) {
+            String className = className(type);
+            writer.println("            case " + constantName(className) + ":");
+            writer.println("                return visitor." + visitMethod(baseName, type) + "((" + className + ") " + parameter + ");");
+        }
+        writer.println("            default:");
+        writer.println("                throw new IllegalStateException(\"Unknown kind \" + " + parameter + ".kind);");
+        writer.println("        }");
         writer.println("    }");
+    }
+
+    private static void defineType(PrintWriter writer, String baseName, String[] type) {
+        String className = className(type);
+        String[] fields = fieldList(type).split(", ");
+
+        if (type.length > 1) {
+            writer.println("    /**");
+            for (int i = 1; i < type.length; i++) {
+                writer.println(type[i].isEmpty() ? "     *" : "     * " + type[i]);
+            }
+            writer.println("     */");
+        }
+        writer.println("    public static final class " + className + " extends " + baseName + " {");
 
         // Fields.
+        for (String field : fields) {
+            writer.println("        public final " + field + ";");
+        }
+        String[] annotations = annotationList(type);
+        if (annotations.length > 0) {
+            writer.println("        // filled in by later passes");
+        }
+        for (String annotation : annotations) {
+            writer.println("        public " + annotation + ";");
+        }
         writer.println();
+
+        // Constructor.
+        writer.println("        public " + className + "(" + fieldList(type) + ") {");
+        writer.println("            super(" + constantName(className) + ");");
+        // Store parameters in fields.
         for (String field : fields) {
-            writer.println("    final " + field + ";");
+            String name = fieldName(field);
+            writer.println("            this." + name + " = " + name + ";");
         }
+        writer.println("        }");
+
+        // Getters.
+        List<String> getters = new ArrayList<>(Arrays.asList(fields));
+        for (String annotation : annotations) {
+            getters.add(annotation.split("=")[0].trim());
+        }
+        for (String field : getters) {
+            String name = fieldName(field);
+            writer.println();
+            writer.println("        public " + fieldType(field) + " get" + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "() {");
+            writer.println("            return " + name + ";");
+            writer.println("        }");
+        }
+
+        writer.println();
+        writer.println("        @Override");
+        writer.println("        public <R> R accept(Visitor<R> visitor) {");
+        writer.println("            return visitor." + visitMethod(baseName, type) + "(this);");
+        writer.println("        }");
+        writer.println("    }");
+    }
+
+    private static String className(String[] type) {
+        return type[0].split(":")[0].split("->")[0].trim();
+    }
+
+    private static String visitMethod(String baseName, String[] type) {
+        String[] name = type[0].split(":")[0].split("->");
+        return name.length > 1 ? name[1].trim() : "visit" + name[0].trim() + baseName;
+    }
+
+    private static String fieldList(String[] type) {
+        return type[0].split(":")[1].split(";")[0].trim();
+    }
+
+    private static String[] annotationList(String[] type) {
+        String[] parts = type[0].split(":")[1].split(";");
+        return parts.length > 1 ? parts[1].trim().split(", ") : new String[0];
+    }
+
+    private static String fieldType(String field) {
+        return field.substring(0, field.lastIndexOf(' '));
+    }
+
+    private static String fieldName(String field) {
+        return field.substring(field.lastIndexOf(' ') + 1);
+    }
 
-        writer.println("  }");
+    // ExprStatement -> EXPR_STATEMENT
+    private static String constantName(String className) {
+        return className.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
     }
 }
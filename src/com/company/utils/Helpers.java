@@ -1,17 +1,43 @@
 package com.company.utils;
 
 public class Helpers {
+    private static final byte DIGIT = 1;
+    private static final byte ALPHA = 2;
+
+    // ASCII 字符分类表，用查表代替多个区间比较；非 ASCII 字符不属于任何分类
+    private static final byte[] CHAR_CLASS = new byte[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) CHAR_CLASS[c] = DIGIT;
+        for (char c = 'a'; c <= 'z'; c++) CHAR_CLASS[c] = ALPHA;
+        for (char c = 'A'; c <= 'Z'; c++) CHAR_CLASS[c] = ALPHA;
+        CHAR_CLASS['_'] = ALPHA;
+    }
+
     public static boolean isDigit(char c) {
-        return c >= '0' && c <= '9';
+        return isDigit((int) c);
     }
 
     public static boolean isAlpha(char c) {
-        return (c >= 'a' && c <= 'z') ||
-                (c >= 'A' && c <= 'Z') ||
-                c == '_';
+        return isAlpha((int) c);
     }
 
     public static boolean isAlphaNumeric(char c) {
-        return isAlpha(c) || isDigit(c);
+        return isAlphaNumeric((int) c);
+    }
+
+    /**
+     * Byte oriented variants, c is a char or an unsigned byte
+     */
+    public static boolean isDigit(int c) {
+        return c < 128 && CHAR_CLASS[c] == DIGIT;
+    }
+
+    public static boolean isAlpha(int c) {
+        return c < 128 && CHAR_CLASS[c] == ALPHA;
+    }
+
+    public static boolean isAlphaNumeric(int c) {
+        return c < 128 && CHAR_CLASS[c] != 0;
     }
 }
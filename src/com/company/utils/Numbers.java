@@ -0,0 +1,92 @@
+package com.company.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Number literal helpers for the scanners.
+ *
+ * Lox numbers are digits with an optional fraction ("123", "4.56"). When the digits fit into 15 decimal
+ * places the value is built directly: the mantissa is exact in a double, so are the powers of ten up to 1e22,
+ * and a single IEEE division is correctly rounded. Only longer literals go through Double.parseDouble.
+ */
+public final class Numbers {
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // 小整数字面量共享同一个 Double 对象
+    private static final int CACHED_INTEGERS = 1024;
+    private static final Double[] INTEGERS = new Double[CACHED_INTEGERS];
+
+    static {
+        for (int i = 0; i < CACHED_INTEGERS; i++) {
+            INTEGERS[i] = (double) i;
+        }
+    }
+
+    private Numbers() {
+    }
+
+    /**
+     * Parses chars[start, end), which the scanner already matched as digits with an optional fraction
+     */
+    public static double parse(char[] chars, int start, int end) {
+        long mantissa = 0;
+        int digits = 0;
+        int dot = -1;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c == '.') {
+                dot = i;
+            } else {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+            }
+        }
+        if (digits <= MAX_FAST_DIGITS) {
+            return dot < 0 ? mantissa : mantissa / POWERS_OF_TEN[end - dot - 1];
+        }
+        return Double.parseDouble(new String(chars, start, end - start));
+    }
+
+    /**
+     * Same as {@link #parse(char[], int, int)} for ASCII bytes
+     */
+    public static double parse(ByteBuffer bytes, int start, int end) {
+        long mantissa = 0;
+        int digits = 0;
+        int dot = -1;
+        for (int i = start; i < end; i++) {
+            byte c = bytes.get(i);
+            if (c == '.') {
+                dot = i;
+            } else {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+            }
+        }
+        if (digits <= MAX_FAST_DIGITS) {
+            return dot < 0 ? mantissa : mantissa / POWERS_OF_TEN[end - dot - 1];
+        }
+        char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) bytes.get(start + i);
+        }
+        return Double.parseDouble(new String(chars));
+    }
+
+    /**
+     * Boxes a literal value, small non-negative integers come from a shared cache
+     */
+    public static Double box(double value) {
+        if (value >= 0 && value < CACHED_INTEGERS) {
+            int integer = (int) value;
+            if (integer == value && (integer != 0 || 1 / value > 0)) {
+                return INTEGERS[integer];
+            }
+        }
+        return value;
+    }
+}
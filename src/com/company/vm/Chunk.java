@@ -0,0 +1,61 @@
+package com.company.vm;
+
+import java.util.Arrays;
+
+/**
+ * 编译好的程序：字节码，常量池和行号表
+ *
+ * Constants are the literal values and the names of globals. The line table is run-length encoded:
+ * lineStarts[i] is the offset of the first instruction on lines[i], only changes of the line are recorded.
+ */
+public final class Chunk {
+    private final byte[] code;
+    private final Object[] constants;
+    private final int[] lineStarts;
+    private final int[] lines;
+    private final int maxLocals;
+    private final int maxStack;
+
+    Chunk(byte[] code, Object[] constants, int[] lineStarts, int[] lines, int maxLocals, int maxStack) {
+        this.code = code;
+        this.constants = constants;
+        this.lineStarts = lineStarts;
+        this.lines = lines;
+        this.maxLocals = maxLocals;
+        this.maxStack = maxStack;
+    }
+
+    public byte[] getCode() {
+        return code;
+    }
+
+    public Object[] getConstants() {
+        return constants;
+    }
+
+    /**
+     * @return the size of the locals array a run needs
+     */
+    public int getMaxLocals() {
+        return maxLocals;
+    }
+
+    /**
+     * @return the deepest the operand stack gets
+     */
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    /**
+     * @param offset of an instruction
+     * @return the source line it was compiled from
+     */
+    public int getLine(int offset) {
+        int index = Arrays.binarySearch(lineStarts, offset);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index < 0 ? 0 : lines[index];
+    }
+}
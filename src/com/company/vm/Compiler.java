@@ -0,0 +1,316 @@
+package com.company.vm;
+
+import com.company.interpreter.FrameLayout;
+import com.company.syntax.Expression;
+import com.company.syntax.Statement;
+import com.company.tokenizer.Token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把已经过 Resolver 的语法树编译成字节码
+ *
+ * Expressions leave their value on the operand stack, statements leave the stack as they found it.
+ * A block that declares variables gets the next {@code slots} entries of the locals array from its base on,
+ * nested blocks start after it and sibling blocks reuse the same entries, so the locals array is as large
+ * as the deepest nesting needs. Blocks without declarations compile to just their statements.
+ *
+ * The line of an instruction is the line of the nearest token the compiler has seen: operators,
+ * variable names and declarations carry one, literals take the line of what came before them.
+ */
+public class Compiler implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+    private static final int MAX_SHORT = 0xFFFF;
+
+    private byte[] code = new byte[256];
+    private int size;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndices = new HashMap<>();
+
+    private int[] lineStarts = new int[16];
+    private int[] lines = new int[16];
+    private int lineCount;
+    private int line;
+
+    private final FrameLayout locals = new FrameLayout();
+
+    private int stack;
+    private int maxStack;
+
+    /**
+     * @param statements a resolved program
+     * @return
+     */
+    public Chunk compile(List<Statement> statements) {
+        for (Statement statement : statements) {
+            compile(statement);
+        }
+        emit(OpCode.RETURN, 0);
+        return new Chunk(Arrays.copyOf(code, size), constants.toArray(),
+                Arrays.copyOf(lineStarts, lineCount), Arrays.copyOf(lines, lineCount), locals.getSize(), maxStack);
+    }
+
+    private void compile(Statement statement) {
+        Statement.dispatch(statement, this);
+    }
+
+    private void compile(Expression expression) {
+        Expression.dispatch(expression, this);
+    }
+
+    @Override
+    public Void visitAssignExpression(Expression.Assign expression) {
+        compile(expression.value);
+        at(expression.name);
+        if (expression.depth < 0) {
+            emitIndexed(OpCode.SET_GLOBAL, constant(expression.name.lexeme), 0);
+        } else {
+            emitIndexed(OpCode.SET_LOCAL, locals.slot(expression.depth, expression.slot), 0);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpression(Expression.Binary expression) {
+        compile(expression.left);
+        compile(expression.right);
+        at(expression.operator);
+        byte opCode;
+        switch (expression.operator.type) {
+            case PLUS:
+                opCode = OpCode.ADD;
+                break;
+            case MINUS:
+                opCode = OpCode.SUBTRACT;
+                break;
+            case STAR:
+                opCode = OpCode.MULTIPLY;
+                break;
+            case SLASH:
+                opCode = OpCode.DIVIDE;
+                break;
+            case GREATER:
+                opCode = OpCode.GREATER;
+                break;
+            case GREATER_EQUAL:
+                opCode = OpCode.GREATER_EQUAL;
+                break;
+            case LESS:
+                opCode = OpCode.LESS;
+                break;
+            case LESS_EQUAL:
+                opCode = OpCode.LESS_EQUAL;
+                break;
+            case EQUAL_EQUAL:
+                opCode = OpCode.EQUAL;
+                break;
+            case BANG_EQUAL:
+                opCode = OpCode.NOT_EQUAL;
+                break;
+            default:
+                // Interpreter evaluates both operands and gives nil for an operator it does not know
+                emit(OpCode.POP, -1);
+                emit(OpCode.POP, -1);
+                emit(OpCode.NIL, 1);
+                return null;
+        }
+        emit(opCode, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpression(Expression.Grouping expression) {
+        compile(expression.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpression(Expression.Literal expression) {
+        Object value = expression.value;
+        if (value == null) {
+            emit(OpCode.NIL, 1);
+        } else if (value.equals(Boolean.TRUE)) {
+            emit(OpCode.TRUE, 1);
+        } else if (value.equals(Boolean.FALSE)) {
+            emit(OpCode.FALSE, 1);
+        } else {
+            emitIndexed(OpCode.CONSTANT, constant(value), 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpression(Expression.Unary expression) {
+        compile(expression.right);
+        at(expression.operator);
+        switch (expression.operator.type) {
+            case MINUS:
+                emit(OpCode.NEGATE, 0);
+                break;
+            case BANG:
+                emit(OpCode.NOT, 0);
+                break;
+            default:
+                emit(OpCode.POP, -1);
+                emit(OpCode.NIL, 1);
+                break;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpression(Expression.Variable expression) {
+        at(expression.name);
+        if (expression.depth < 0) {
+            emitIndexed(OpCode.GET_GLOBAL, constant(expression.name.lexeme), 1);
+        } else {
+            emitIndexed(OpCode.GET_LOCAL, locals.slot(expression.depth, expression.slot), 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(Statement.ExprStatement statement) {
+        compile(statement.expr);
+        emit(OpCode.POP, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStatement(Statement.PrintStatement statement) {
+        compile(statement.expr);
+        emit(OpCode.PRINT, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(Statement.VarDeclaration statement) {
+        at(statement.name);
+        if (statement.expression != null) {
+            compile(statement.expression);
+        } else {
+            emit(OpCode.NIL, 1);
+        }
+        if (statement.slot < 0) {
+            emitIndexed(OpCode.DEFINE_GLOBAL, constant(statement.name.lexeme), -1);
+        } else {
+            emitIndexed(OpCode.DEFINE_LOCAL, locals.slot(0, statement.slot), -1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStatement(Statement.BlockStatement statement) {
+        locals.enter(statement);
+        for (Statement child : statement.statements) {
+            compile(child);
+        }
+        locals.exit(statement);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStatement(Statement.IfStatement statement) {
+        compile(statement.condition);
+        int elseJump = emitJump(OpCode.JUMP_IF_FALSE, -1);
+        compile(statement.thenBranch);
+        if (statement.elseBranch == null) {
+            patchJump(elseJump);
+            return null;
+        }
+        int endJump = emitJump(OpCode.JUMP, 0);
+        patchJump(elseJump);
+        compile(statement.elseBranch);
+        patchJump(endJump);
+        return null;
+    }
+
+    private int constant(Object value) {
+        Integer index = constantIndices.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndices.put(value, index);
+        }
+        return index;
+    }
+
+    private void at(Token token) {
+        line = token.line;
+    }
+
+    /**
+     * @param opCode
+     * @param effect how the instruction changes the stack depth
+     */
+    private void emit(byte opCode, int effect) {
+        if (lineCount == 0 || lines[lineCount - 1] != line) {
+            if (lineCount > 0 && lineStarts[lineCount - 1] == size) {
+                // nothing was emitted on the previous line
+                lines[lineCount - 1] = line;
+            } else {
+                if (lineCount == lines.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                    lines = Arrays.copyOf(lines, lineCount * 2);
+                }
+                lineStarts[lineCount] = size;
+                lines[lineCount] = line;
+                lineCount++;
+            }
+        }
+        write(opCode);
+        stack += effect;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void emitIndexed(byte opCode, int index, int effect) {
+        if (index > MAX_SHORT) {
+            emit(OpCode.WIDE, 0);
+            write(opCode);
+            writeInt(index);
+        } else {
+            emit(opCode, 0);
+            write((byte) (index >> 8));
+            write((byte) index);
+        }
+        stack += effect;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    /**
+     * @return the offset of the jump's operand, for {@link #patchJump(int)}
+     */
+    private int emitJump(byte opCode, int effect) {
+        emit(opCode, effect);
+        writeInt(0);
+        return size - 4;
+    }
+
+    /**
+     * Makes the jump whose operand is at offset land on the next instruction
+     */
+    private void patchJump(int offset) {
+        int jump = size - (offset + 4);
+        code[offset] = (byte) (jump >> 24);
+        code[offset + 1] = (byte) (jump >> 16);
+        code[offset + 2] = (byte) (jump >> 8);
+        code[offset + 3] = (byte) jump;
+    }
+
+    private void write(byte value) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, size * 2);
+        }
+        code[size++] = value;
+    }
+
+    private void writeInt(int value) {
+        write((byte) (value >> 24));
+        write((byte) (value >> 16));
+        write((byte) (value >> 8));
+        write((byte) value);
+    }
+}
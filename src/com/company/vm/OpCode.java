@@ -0,0 +1,85 @@
+package com.company.vm;
+
+/**
+ * 字节码指令
+ *
+ * An instruction is one opcode byte followed by its operands, big-endian. Index operands (constants, global names,
+ * local slots) are 2 bytes, or 4 bytes when the instruction is prefixed with {@link #WIDE}. Jump offsets are
+ * always 4 bytes and relative to the end of the jump instruction.
+ *
+ * Locals live in one array per run, a local's operand is its absolute slot: the Compiler adds the slot from
+ * the Resolver to the base of the block that declares it.
+ */
+public final class OpCode {
+    /** index: push constants[index] */
+    public static final byte CONSTANT = 0;
+    public static final byte NIL = 1;
+    public static final byte TRUE = 2;
+    public static final byte FALSE = 3;
+    public static final byte POP = 4;
+    /** slot: push locals[slot] */
+    public static final byte GET_LOCAL = 5;
+    /** slot: locals[slot] = top, the value stays on the stack */
+    public static final byte SET_LOCAL = 6;
+    /** slot: locals[slot] = pop */
+    public static final byte DEFINE_LOCAL = 7;
+    /** name: push the global named constants[name] */
+    public static final byte GET_GLOBAL = 8;
+    /** name: assign top to an existing global, the value stays on the stack */
+    public static final byte SET_GLOBAL = 9;
+    /** name: define the global with pop */
+    public static final byte DEFINE_GLOBAL = 10;
+    public static final byte EQUAL = 11;
+    public static final byte NOT_EQUAL = 12;
+    public static final byte GREATER = 13;
+    public static final byte GREATER_EQUAL = 14;
+    public static final byte LESS = 15;
+    public static final byte LESS_EQUAL = 16;
+    public static final byte ADD = 17;
+    public static final byte SUBTRACT = 18;
+    public static final byte MULTIPLY = 19;
+    public static final byte DIVIDE = 20;
+    public static final byte NOT = 21;
+    public static final byte NEGATE = 22;
+    public static final byte PRINT = 23;
+    /** offset: ip += offset */
+    public static final byte JUMP = 24;
+    /** offset: pop, ip += offset if it is falsey */
+    public static final byte JUMP_IF_FALSE = 25;
+    /** the index operand of the next instruction has 4 bytes */
+    public static final byte WIDE = 26;
+    public static final byte RETURN = 27;
+
+    private static final String[] NAMES = {
+            "CONSTANT", "NIL", "TRUE", "FALSE", "POP", "GET_LOCAL", "SET_LOCAL", "DEFINE_LOCAL",
+            "GET_GLOBAL", "SET_GLOBAL", "DEFINE_GLOBAL", "EQUAL", "NOT_EQUAL", "GREATER", "GREATER_EQUAL",
+            "LESS", "LESS_EQUAL", "ADD", "SUBTRACT", "MULTIPLY", "DIVIDE", "NOT", "NEGATE", "PRINT",
+            "JUMP", "JUMP_IF_FALSE", "WIDE", "RETURN"
+    };
+
+    private OpCode() {
+    }
+
+    public static String name(byte opCode) {
+        return opCode >= 0 && opCode < NAMES.length ? NAMES[opCode] : "UNKNOWN(" + opCode + ")";
+    }
+
+    /**
+     * @param opCode
+     * @return true if the instruction has an index operand that WIDE applies to
+     */
+    public static boolean hasIndex(byte opCode) {
+        switch (opCode) {
+            case CONSTANT:
+            case GET_LOCAL:
+            case SET_LOCAL:
+            case DEFINE_LOCAL:
+            case GET_GLOBAL:
+            case SET_GLOBAL:
+            case DEFINE_GLOBAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
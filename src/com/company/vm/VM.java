@@ -0,0 +1,266 @@
+package com.company.vm;
+
+import com.company.interpreter.Backend;
+import com.company.interpreter.Resolver;
+import com.company.interpreter.RuntimeError;
+import com.company.interpreter.Values;
+import com.company.output.OutputSink;
+import com.company.output.StdoutSink;
+import com.company.syntax.Statement;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.company.interpreter.Values.isEqual;
+import static com.company.interpreter.Values.isTruthy;
+import static com.company.interpreter.Values.stringify;
+
+/**
+ * 基于操作数栈的字节码虚拟机，语义和 {@link com.company.interpreter.Interpreter} 相同
+ *
+ * One loop reads an opcode and switches on it, the operand stack and the locals are plain Object[] arrays
+ * sized by the Compiler, ip and sp stay in local variables.
+ * Globals are kept by name and survive between runs, like in Interpreter: reading an undefined global
+ * gives nil and assigning one does nothing.
+ * A runtime error (an operand of the wrong type) stops the program, as in Interpreter,
+ * the {@link RuntimeError} carries the line the failing instruction was compiled from.
+ */
+public class VM implements Backend {
+    private final Map<String, Object> globals;
+    private final OutputSink out;
+    private final Resolver resolver = new Resolver();
+    private RuntimeError error;
+
+    public VM() {
+        this(StdoutSink.INSTANCE);
+    }
+
+    /**
+     * @param out where print writes, the caller flushes it
+     */
+    public VM(OutputSink out) {
+        this(new HashMap<>(), out);
+    }
+
+    /**
+     * @param globals shared with another backend that runs the rest of the program
+     * @param out
+     */
+    public VM(Map<String, Object> globals, OutputSink out) {
+        this.globals = globals;
+        this.out = out;
+    }
+
+    @Override
+    public void interpreter(List<Statement> statements) {
+        resolver.resolve(statements);
+        run(new Compiler().compile(statements));
+    }
+
+    @Override
+    public RuntimeError getError() {
+        return error;
+    }
+
+    public void run(Chunk chunk) {
+        byte[] code = chunk.getCode();
+        Object[] constants = chunk.getConstants();
+        Object[] locals = new Object[chunk.getMaxLocals()];
+        Object[] stack = new Object[chunk.getMaxStack()];
+        int ip = 0;
+        int sp = 0;
+        // the instruction being executed, for the line of an error
+        int start = 0;
+        int width = 2;
+        error = null;
+        try {
+            while (true) {
+                start = ip;
+                byte opCode = code[ip++];
+                switch (opCode) {
+                    case OpCode.CONSTANT: {
+                        int index = operand(code, ip, width);
+                        ip += width;
+                        width = 2;
+                        stack[sp++] = constants[index];
+                        break;
+                    }
+                    case OpCode.NIL:
+                        stack[sp++] = null;
+                        break;
+                    case OpCode.TRUE:
+                        stack[sp++] = Boolean.TRUE;
+                        break;
+                    case OpCode.FALSE:
+                        stack[sp++] = Boolean.FALSE;
+                        break;
+                    case OpCode.POP:
+                        stack[--sp] = null;
+                        break;
+                    case OpCode.GET_LOCAL: {
+                        int slot = operand(code, ip, width);
+                        ip += width;
+                        width = 2;
+                        stack[sp++] = locals[slot];
+                        break;
+                    }
+                    case OpCode.SET_LOCAL: {
+                        int slot = operand(code, ip, width);
+                        ip += width;
+                        width = 2;
+                        locals[slot] = stack[sp - 1];
+                        break;
+                    }
+                    case OpCode.DEFINE_LOCAL: {
+                        int slot = operand(code, ip, width);
+                        ip += width;
+                        width = 2;
+                        locals[slot] = stack[--sp];
+                        stack[sp] = null;
+                        break;
+                    }
+                    case OpCode.GET_GLOBAL: {
+                        int name = operand(code, ip, width);
+                        ip += width;
+                        width = 2;
+                        stack[sp++] = globals.get((String) constants[name]);
+                        break;
+                    }
+                    case OpCode.SET_GLOBAL: {
+                        int name = operand(code, ip, width);
+                        ip += width;
+                        width = 2;
+                        globals.replace((String) constants[name], stack[sp - 1]);
+                        break;
+                    }
+                    case OpCode.DEFINE_GLOBAL: {
+                        int name = operand(code, ip, width);
+                        ip += width;
+                        width = 2;
+                        globals.put((String) constants[name], stack[--sp]);
+                        stack[sp] = null;
+                        break;
+                    }
+                    case OpCode.EQUAL: {
+                        Object right = stack[--sp];
+                        stack[sp - 1] = isEqual(stack[sp - 1], right);
+                        break;
+                    }
+                    case OpCode.NOT_EQUAL: {
+                        Object right = stack[--sp];
+                        stack[sp - 1] = !isEqual(stack[sp - 1], right);
+                        break;
+                    }
+                    case OpCode.GREATER: {
+                        Object right = stack[--sp];
+                        stack[sp - 1] = number(stack[sp - 1], chunk, start) > number(right, chunk, start);
+                        break;
+                    }
+                    case OpCode.GREATER_EQUAL: {
+                        Object right = stack[--sp];
+                        stack[sp - 1] = number(stack[sp - 1], chunk, start) >= number(right, chunk, start);
+                        break;
+                    }
+                    case OpCode.LESS: {
+                        Object right = stack[--sp];
+                        stack[sp - 1] = number(stack[sp - 1], chunk, start) < number(right, chunk, start);
+                        break;
+                    }
+                    case OpCode.LESS_EQUAL: {
+                        Object right = stack[--sp];
+                        stack[sp - 1] = number(stack[sp - 1], chunk, start) <= number(right, chunk, start);
+                        break;
+                    }
+                    case OpCode.ADD: {
+                        Object right = stack[--sp];
+                        Object left = stack[sp - 1];
+                        if (left instanceof Double && right instanceof Double) {
+                            stack[sp - 1] = (double) left + (double) right;
+                        } else if (left instanceof String && right instanceof String) {
+                            stack[sp - 1] = (String) left + (String) right;
+                        } else {
+                            stack[sp - 1] = null;
+                        }
+                        break;
+                    }
+                    case OpCode.SUBTRACT: {
+                        Object right = stack[--sp];
+                        stack[sp - 1] = number(stack[sp - 1], chunk, start) - number(right, chunk, start);
+                        break;
+                    }
+                    case OpCode.MULTIPLY: {
+                        Object right = stack[--sp];
+                        stack[sp - 1] = number(stack[sp - 1], chunk, start) * number(right, chunk, start);
+                        break;
+                    }
+                    case OpCode.DIVIDE: {
+                        Object right = stack[--sp];
+                        stack[sp - 1] = number(stack[sp - 1], chunk, start) / number(right, chunk, start);
+                        break;
+                    }
+                    case OpCode.NOT:
+                        stack[sp - 1] = !isTruthy(stack[sp - 1]);
+                        break;
+                    case OpCode.NEGATE:
+                        stack[sp - 1] = -number(stack[sp - 1], chunk, start);
+                        break;
+                    case OpCode.PRINT:
+                        out.println(stringify(stack[--sp]));
+                        stack[sp] = null;
+                        break;
+                    case OpCode.JUMP: {
+                        int offset = readInt(code, ip);
+                        ip += 4 + offset;
+                        break;
+                    }
+                    case OpCode.JUMP_IF_FALSE: {
+                        int offset = readInt(code, ip);
+                        ip += 4;
+                        Object condition = stack[--sp];
+                        stack[sp] = null;
+                        if (!isTruthy(condition)) {
+                            ip += offset;
+                        }
+                        break;
+                    }
+                    case OpCode.WIDE:
+                        width = 4;
+                        break;
+                    case OpCode.RETURN:
+                        return;
+                    default:
+                        throw new IllegalStateException("Unknown opcode " + opCode + " at " + start);
+                }
+            }
+        } catch (RuntimeError e) {
+            error = e;
+        }
+    }
+
+    /**
+     * @param operand of the instruction at start
+     * @param chunk
+     * @param start
+     * @return the operand as a number
+     * @throws RuntimeError with the line of the instruction if it is not a number
+     */
+    private static double number(Object operand, Chunk chunk, int start) {
+        if (operand instanceof Double) {
+            return (Double) operand;
+        }
+        // the line table is only searched for an error
+        return Values.number(operand, chunk.getLine(start));
+    }
+
+    private static int operand(byte[] code, int ip, int width) {
+        if (width == 2) {
+            return ((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF);
+        }
+        return readInt(code, ip);
+    }
+
+    private static int readInt(byte[] code, int ip) {
+        return (code[ip] << 24) | ((code[ip + 1] & 0xFF) << 16) | ((code[ip + 2] & 0xFF) << 8) | (code[ip + 3] & 0xFF);
+    }
+}